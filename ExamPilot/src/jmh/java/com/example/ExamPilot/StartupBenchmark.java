@@ -0,0 +1,104 @@
+package com.example.ExamPilot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Time from launching the packaged app to the response to its first request (GET /), a fresh JVM each
+// time. "plain" runs the jar as the Dockerfile does; "fast-startup" runs the extracted jar with the CDS
+// archive, the AOT-generated code and the fast-startup profile, so it needs that build:
+//   ./mvnw -P fast-startup,jmh verify -DskipTests -Djmh.args="StartupBenchmark"
+// Start a local MongoDB first, or the plain mode also waits out the server-selection timeout at startup.
+// The apps' output goes to target/startup-benchmark.log.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final String JAR = System.getProperty("exampilot.jar", "ExamPilot-0.0.1-SNAPSHOT.jar");
+
+    @Param({"plain", "fast-startup"})
+    private String mode;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Path target;
+    private Process process;
+
+    @Setup
+    public void setUp() {
+        target = Path.of("target").toAbsolutePath();
+        Path jar = "plain".equals(mode) ? target.resolve(JAR) : target.resolve("application").resolve(JAR);
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException(jar + " not found; package with -P fast-startup first");
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws Exception {
+        int port = freePort();
+        process = launch(port);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/")).build();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("App exited with " + process.exitValue() + " before answering");
+            }
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                // Not listening yet
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        process = null;
+    }
+
+    private Process launch(int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Path directory = target;
+        if ("fast-startup".equals(mode)) {
+            directory = target.resolve("application");
+            command.add("-XX:SharedArchiveFile=application.jsa");
+            command.add("-Dspring.aot.enabled=true");
+            command.add("-Dspring.profiles.active=fast-startup");
+        }
+        command.add("-jar");
+        command.add(JAR);
+        command.add("--server.port=" + port);
+        return new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(target.resolve("startup-benchmark.log").toFile()))
+                .start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
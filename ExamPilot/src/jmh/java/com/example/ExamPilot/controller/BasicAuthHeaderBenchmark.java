@@ -0,0 +1,32 @@
+package com.example.ExamPilot.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// Decoding of the Authorization header done on every Basic-authenticated login
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BasicAuthHeaderBenchmark {
+
+    private final AuthController authController = new AuthController();
+
+    private String header;
+
+    @Setup
+    public void setUp() {
+        header = "Basic " + Base64.getEncoder()
+                .encodeToString("student.name@example.com:correct horse battery staple".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String[] parseBasicCredentials() {
+        return authController.parseBasicCredentials(header);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ExamPilot.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Realistic folder shapes for the benchmarks: two-week timetables with a morning and afternoon exam a day
+public final class BenchmarkFolders {
+
+    private static final int DAYS_PER_TIMETABLE = 10;
+
+    private BenchmarkFolders() {
+    }
+
+    public static ExamFolder folder(int timetables) {
+        ExamFolder folder = new ExamFolder("user-1", "Semester 1", "Benchmark folder");
+        folder.setId("folder-1");
+        folder.setVersion(0L);
+        for (int i = 0; i < timetables; i++) {
+            folder.addTimetable(timetable("tt-" + i, LocalDate.of(2025, 5, 5)));
+        }
+        return folder;
+    }
+
+    public static Timetable timetable(String id, LocalDate start) {
+        List<Timetable.TimetableDay> days = new ArrayList<>();
+        for (int d = 0; d < DAYS_PER_TIMETABLE; d++) {
+            LocalDate date = start.plusDays(d);
+            Timetable.TimetableDay day = new Timetable.TimetableDay();
+            day.setDate(date);
+            day.setDay(date.getDayOfWeek().toString());
+            // Without a timetable id the sessions are new too, and left for the service to number
+            day.setMorning(session(id == null ? null : id + "-" + d + "-am", "CS" + (100 + 2 * d), "Morning", "09:00"));
+            day.setAfternoon(session(id == null ? null : id + "-" + d + "-pm", "CS" + (101 + 2 * d), "Afternoon", "14:00"));
+            days.add(day);
+        }
+        Timetable timetable = new Timetable();
+        timetable.setId(id);
+        timetable.setTableName("Timetable " + id);
+        timetable.setStartDate(start);
+        timetable.setEndDate(start.plusDays(DAYS_PER_TIMETABLE - 1));
+        timetable.setDayGap(1);
+        timetable.setTimetable(days);
+        timetable.setCreatedAt(LocalDateTime.of(2025, 4, 1, 10, 0));
+        timetable.setUpdatedAt(LocalDateTime.of(2025, 4, 1, 10, 0));
+        return timetable;
+    }
+
+    private static Timetable.ExamSession session(String id, String code, String session, String time) {
+        Timetable.ExamSession exam = new Timetable.ExamSession();
+        exam.setId(id);
+        exam.setName("Course " + code);
+        exam.setCode(code);
+        exam.setCredits("3");
+        exam.setDuration("2 hours");
+        exam.setTime(time);
+        exam.setSession(session);
+        return exam;
+    }
+}
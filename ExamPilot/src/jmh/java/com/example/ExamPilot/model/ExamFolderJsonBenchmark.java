@@ -0,0 +1,46 @@
+package com.example.ExamPilot.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Jackson round trip of an ExamFolder as the REST controllers do it, with Spring Boot's mapper defaults
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ExamFolderJsonBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int timetables;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private ExamFolder folder;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writerFor(ExamFolder.class);
+        reader = mapper.readerFor(ExamFolder.class);
+        folder = BenchmarkFolders.folder(timetables);
+        json = writer.writeValueAsBytes(folder);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(folder);
+    }
+
+    @Benchmark
+    public ExamFolder deserialize() throws Exception {
+        return reader.readValue(json);
+    }
+}
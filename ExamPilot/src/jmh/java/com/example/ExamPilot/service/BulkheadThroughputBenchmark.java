@@ -0,0 +1,65 @@
+package com.example.ExamPilot.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// A burst of requests that mostly wait on the database, each behind a MongoBulkhead permit: a
+// platform pool caps throughput at its size, virtual threads are capped only by the bulkhead
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkheadThroughputBenchmark {
+
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = 200;
+    private static final int REQUESTS = 4000;
+    private static final long DATABASE_LATENCY_MILLIS = 20;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ExecutorService executor;
+    private MongoBulkhead bulkhead;
+
+    @Setup
+    public void setUp() {
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        bulkhead = new MongoBulkhead(2 * PLATFORM_THREADS, 10_000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public long burst() throws Exception {
+        List<Future<?>> results = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(executor.submit(() -> {
+                try (MongoBulkhead.Permit permit = bulkhead.acquire()) {
+                    Thread.sleep(DATABASE_LATENCY_MILLIS);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        if (bulkhead.getRejected() > 0) {
+            throw new IllegalStateException(bulkhead.getRejected() + " requests rejected by the bulkhead");
+        }
+        return bulkhead.getAcquired();
+    }
+}
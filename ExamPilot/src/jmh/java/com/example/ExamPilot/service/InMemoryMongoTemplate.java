@@ -0,0 +1,183 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.config.MongoConfig;
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.Document;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Stands in for Mongo in the service benchmarks. Each overridden call does the client-side work the real
+// template does (mapping the query, update or documents through the app's converter and encoding them to
+// BSON), then answers from the held folder and its timetables instead of a network round trip, so only
+// our code is measured.
+class InMemoryMongoTemplate extends MongoTemplate {
+
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    private final QueryMapper queryMapper;
+    private final UpdateMapper updateMapper;
+    private final ExamFolder folder;
+    private final List<Timetable> timetables;
+
+    InMemoryMongoTemplate(ExamFolder folder) {
+        this(folder, converter());
+    }
+
+    private InMemoryMongoTemplate(ExamFolder folder, MappingMongoConverter converter) {
+        super(new StandInDatabaseFactory(), converter);
+        this.queryMapper = new QueryMapper(converter);
+        this.updateMapper = new UpdateMapper(converter);
+        this.folder = folder;
+        this.timetables = new ArrayList<>(folder.getTimetables());
+    }
+
+    @Override
+    public <T> T findAndModify(Query query, UpdateDefinition update, FindAndModifyOptions options, Class<T> entityClass) {
+        MongoPersistentEntity<?> entity = getConverter().getMappingContext().getPersistentEntity(entityClass);
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+        Document mapped = updateMapper.getMappedObject(update.getUpdateObject(), entity);
+        new RawBsonDocument(filter, CODEC);
+        new RawBsonDocument(mapped, CODEC);
+        if (entityClass == Timetable.class) {
+            // The timetable as it was, which is what the service asks for
+            return entityClass.cast(timetable(filter));
+        }
+        // Asked for the folder as it was, the service applies the bump to the copy it gets back, which is this one
+        if (options.isReturnNew()) {
+            folder.setVersion(folder.getVersion() + 1);
+        }
+        return entityClass.cast(folder);
+    }
+
+    @Override
+    public <T> T findAndRemove(Query query, Class<T> entityClass) {
+        encode(query.getQueryObject(), entityClass);
+        return entityClass.cast(timetable(query.getQueryObject()));
+    }
+
+    @Override
+    public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+        encode(query.getQueryObject(), entityClass);
+        List<T> found = new ArrayList<>();
+        if (entityClass == Timetable.class) {
+            for (Timetable timetable : timetables) {
+                found.add(entityClass.cast(timetable));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean exists(Query query, Class<?> entityClass) {
+        encode(query.getQueryObject(), entityClass);
+        return true;
+    }
+
+    @Override
+    public <T> Collection<T> insert(Collection<? extends T> batchToSave, Class<?> entityClass) {
+        for (T object : batchToSave) {
+            Document document = new Document();
+            getConverter().write(object, document);
+            new RawBsonDocument(document, CODEC);
+        }
+        return new ArrayList<>(batchToSave);
+    }
+
+    @Override
+    public UpdateResult updateFirst(Query query, UpdateDefinition update, Class<?> entityClass) {
+        encode(query.getQueryObject(), entityClass);
+        MongoPersistentEntity<?> entity = getConverter().getMappingContext().getPersistentEntity(entityClass);
+        new RawBsonDocument(updateMapper.getMappedObject(update.getUpdateObject(), entity), CODEC);
+        return UpdateResult.acknowledged(1, 1L, null);
+    }
+
+    @Override
+    public DeleteResult remove(Query query, Class<?> entityClass) {
+        encode(query.getQueryObject(), entityClass);
+        return DeleteResult.acknowledged(1);
+    }
+
+    private Timetable timetable(Document filter) {
+        for (Timetable timetable : timetables) {
+            if (timetable.getId().equals(filter.get("_id"))) {
+                return timetable;
+            }
+        }
+        return null;
+    }
+
+    private void encode(Document query, Class<?> entityClass) {
+        MongoPersistentEntity<?> entity = getConverter().getMappingContext().getPersistentEntity(entityClass);
+        new RawBsonDocument(queryMapper.getMappedObject(query, entity), CODEC);
+    }
+
+    private static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private static class StandInDatabaseFactory implements MongoDatabaseFactory {
+
+        @Override
+        public MongoDatabase getMongoDatabase() {
+            throw new UnsupportedOperationException("No database behind the benchmark template");
+        }
+
+        @Override
+        public MongoDatabase getMongoDatabase(String dbName) {
+            return getMongoDatabase();
+        }
+
+        @Override
+        public PersistenceExceptionTranslator getExceptionTranslator() {
+            return new MongoExceptionTranslator();
+        }
+
+        @Override
+        public CodecRegistry getCodecRegistry() {
+            return MongoClientSettings.getDefaultCodecRegistry();
+        }
+
+        @Override
+        public ClientSession getSession(ClientSessionOptions options) {
+            throw new UnsupportedOperationException("No sessions in the benchmark template");
+        }
+
+        @Override
+        public MongoDatabaseFactory withSession(ClientSession session) {
+            return this;
+        }
+    }
+}
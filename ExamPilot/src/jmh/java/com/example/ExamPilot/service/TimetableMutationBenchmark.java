@@ -0,0 +1,77 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.BenchmarkFolders;
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// ExamFolderService's add/update/delete timetable paths, wired as in QueryPlanTests but against
+// InMemoryMongoTemplate: id generation, bulkhead, the folder version bump, the timetable write and
+// the reload of the folder's timetables, cache invalidation
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TimetableMutationBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int timetables;
+
+    private ExamFolderService examFolderService;
+    private ExamFolder folder;
+    private Timetable edited;
+
+    @Setup
+    public void setUp() {
+        folder = BenchmarkFolders.folder(timetables);
+        edited = BenchmarkFolders.timetable("tt-0", LocalDate.of(2025, 6, 2));
+
+        TimetableIdGenerator idGenerator = new TimetableIdGenerator();
+        idGenerator.init();
+        MongoBulkhead bulkhead = new MongoBulkhead();
+        bulkhead.init();
+
+        InMemoryMongoTemplate mongoTemplate = new InMemoryMongoTemplate(folder);
+        ExamFolderCache examFolderCache = new ExamFolderCache();
+        TimetableStore timetableStore = new TimetableStore();
+        ReflectionTestUtils.setField(timetableStore, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(timetableStore, "timetableIdGenerator", idGenerator);
+        ReflectionTestUtils.setField(timetableStore, "examFolderCache", examFolderCache);
+        timetableStore.markMigrated();
+
+        examFolderService = new ExamFolderService();
+        ReflectionTestUtils.setField(examFolderService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(examFolderService, "examFolderCache", examFolderCache);
+        ReflectionTestUtils.setField(examFolderService, "timetableStore", timetableStore);
+        ReflectionTestUtils.setField(examFolderService, "timetableIdGenerator", idGenerator);
+        ReflectionTestUtils.setField(examFolderService, "mongoBulkhead", bulkhead);
+        ReflectionTestUtils.setField(examFolderService, "databaseErrors", new DatabaseErrors(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(examFolderService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(examFolderService, "localFolderStore", new LocalFolderStore());
+    }
+
+    @Benchmark
+    public ExamFolder addTimetable() {
+        // A fresh timetable each call, as a request body would be, so id assignment is included
+        Timetable timetable = BenchmarkFolders.timetable(null, LocalDate.of(2025, 6, 2));
+        return examFolderService.addTimetableToFolder(folder.getId(), timetable);
+    }
+
+    @Benchmark
+    public ExamFolder updateTimetable() {
+        return examFolderService.updateTimetableInFolder(folder.getId(), "tt-0", edited, folder.getVersion());
+    }
+
+    @Benchmark
+    public ExamFolder deleteTimetable() {
+        return examFolderService.deleteTimetableFromFolder(folder.getId(), "tt-" + (timetables - 1));
+    }
+}
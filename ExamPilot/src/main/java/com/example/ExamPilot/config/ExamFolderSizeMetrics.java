@@ -0,0 +1,87 @@
+package com.example.ExamPilot.config;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Size of every full folder and timetable document read or written, to see documents growing toward
+// Mongo's 16 MB limit before a write is rejected, and how many timetables the folders served hold.
+// Measuring re-encodes the document, so writes are all measured but reads only one in readSampleEvery.
+@Component
+public class ExamFolderSizeMetrics extends AbstractMongoEventListener<Object> {
+
+    private static final double MB = 1024 * 1024;
+
+    private final DocumentCodec codec = new DocumentCodec();
+    private final DistributionSummary folderSize;
+    private final DistributionSummary timetableSize;
+    private final DistributionSummary timetableCount;
+    private final int readSampleEvery;
+    private final AtomicLong reads = new AtomicLong();
+
+    public ExamFolderSizeMetrics(MeterRegistry registry,
+                                 @Value("${app.metrics.document-size.read-sample-every:20}") int readSampleEvery) {
+        this.readSampleEvery = Math.max(1, readSampleEvery);
+        folderSize = documentSize(registry, "exam_folders");
+        timetableSize = documentSize(registry, "timetables");
+        timetableCount = DistributionSummary.builder("exampilot.folder.timetables")
+                .description("Timetables held in one exam folder")
+                .serviceLevelObjectives(1, 5, 10, 50, 100, 500)
+                .register(registry);
+    }
+
+    public void recordTimetableCount(int count) {
+        timetableCount.record(count);
+    }
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Object> event) {
+        record(event.getSource(), event.getDocument());
+    }
+
+    // Also sees findAndModify results, which is how folder edits come back
+    @Override
+    public void onAfterConvert(AfterConvertEvent<Object> event) {
+        Object source = event.getSource();
+        if ((source instanceof Timetable || source instanceof ExamFolder)
+                && reads.getAndIncrement() % readSampleEvery == 0) {
+            record(source, event.getDocument());
+        }
+    }
+
+    private void record(Object source, Document document) {
+        if (document == null) {
+            return;
+        }
+        if (source instanceof Timetable) {
+            timetableSize.record(sizeOf(document));
+        } else if (source instanceof ExamFolder && document.containsKey("userId") && document.containsKey("folderName")) {
+            // Projections such as the listing stamp leave these out and say nothing about size
+            folderSize.record(sizeOf(document));
+        }
+    }
+
+    private int sizeOf(Document document) {
+        return new RawBsonDocument(document, codec).getByteBuffer().remaining();
+    }
+
+    private static DistributionSummary documentSize(MeterRegistry registry, String collection) {
+        return DistributionSummary.builder("exampilot.document.size")
+                .description("BSON size of exam folder and timetable documents")
+                .baseUnit("bytes")
+                .tag("collection", collection)
+                .serviceLevelObjectives(64 * 1024, 256 * 1024, MB, 4 * MB, 8 * MB, 12 * MB, 16 * MB)
+                .register(registry);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.ExamPilot.config;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ConnectionString;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// The database factory behind MongoTemplate, over an ordered list of deployments: the configured cluster
+// first, then any failover URIs. Each deployment gets one client, and so one connection pool, made on
+// first use. Work goes to the active deployment. A health check pings it, and after failureThreshold
+// failed pings in a row switches to the first deployment that answers; while on a later one it switches
+// back as soon as the first answers again.
+public class FailoverMongoDatabaseFactory implements MongoDatabaseFactory, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FailoverMongoDatabaseFactory.class);
+    private static final Document PING = new Document("ping", 1);
+
+    private final List<String> uris;
+    private final Function<String, MongoClient> clientFactory;
+    private final String databaseName;
+    private final int failureThreshold;
+    private final AtomicReferenceArray<Deployment> deployments;
+    private final AtomicLong failovers = new AtomicLong();
+    private ScheduledExecutorService healthCheck;
+
+    private volatile int active;
+    private int failures;
+
+    public FailoverMongoDatabaseFactory(List<String> uris, Function<String, MongoClient> clientFactory,
+                                        String databaseName, int failureThreshold) {
+        this.uris = new ArrayList<>(uris);
+        this.clientFactory = clientFactory;
+        this.databaseName = databaseName;
+        this.failureThreshold = failureThreshold;
+        this.deployments = new AtomicReferenceArray<>(uris.size());
+    }
+
+    // The first deployment that answers; the first one if none does, so startup goes on without a database
+    public void selectAtStartup() {
+        for (int i = 0; i < uris.size(); i++) {
+            if (ping(i)) {
+                active = i;
+                log.info("Connected to MongoDB at {}", hosts(i));
+                return;
+            }
+        }
+        active = 0;
+        log.warn("No MongoDB deployment answered; continuing with {}", hosts(0));
+    }
+
+    // Opens up to the given number of pooled connections before the app takes traffic, so the first
+    // requests do not each pay for a TLS handshake and authentication
+    public void warmUp(int connections) {
+        if (connections <= 0 || !ping(active)) {
+            return;
+        }
+        MongoDatabase admin = factory(active).getMongoDatabase("admin");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    admin.runCommand(PING);
+                } catch (Exception e) {
+                    // the health check reports an unreachable deployment
+                }
+            }));
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void startHealthChecks(long intervalSeconds) {
+        if (uris.size() < 2 || intervalSeconds <= 0) {
+            return;
+        }
+        healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mongo-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    void checkHealth() {
+        int current = active;
+        if (current != 0 && ping(0)) {
+            switchTo(0);
+            return;
+        }
+        if (ping(current)) {
+            failures = 0;
+            return;
+        }
+        if (++failures < failureThreshold) {
+            return;
+        }
+        for (int i = 0; i < uris.size(); i++) {
+            if (i != current && ping(i)) {
+                switchTo(i);
+                return;
+            }
+        }
+    }
+
+    private void switchTo(int index) {
+        log.warn("MongoDB failover: {} -> {}", hosts(active), hosts(index));
+        active = index;
+        failures = 0;
+        failovers.incrementAndGet();
+    }
+
+    private boolean ping(int index) {
+        try {
+            factory(index).getMongoDatabase("admin").runCommand(PING);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private SimpleMongoClientDatabaseFactory factory(int index) {
+        return deployment(index).factory();
+    }
+
+    private Deployment deployment(int index) {
+        Deployment deployment = deployments.get(index);
+        if (deployment != null) {
+            return deployment;
+        }
+        synchronized (deployments) {
+            if (deployments.get(index) == null) {
+                MongoClient client = clientFactory.apply(uris.get(index));
+                deployments.set(index, new Deployment(client, new SimpleMongoClientDatabaseFactory(client, databaseName)));
+            }
+            return deployments.get(index);
+        }
+    }
+
+    // Host list only; the URIs carry credentials
+    private String hosts(int index) {
+        return String.join(",", new ConnectionString(uris.get(index)).getHosts());
+    }
+
+    public MongoClient getClient() {
+        return deployment(active).client();
+    }
+
+    // A client that passes every call to the active deployment's client, for code that holds on to a
+    // MongoClient. Closing it does nothing; destroy() closes the real ones.
+    public MongoClient getFailoverClient() {
+        return following(MongoClient.class, this::getClient);
+    }
+
+    public String getUri(int index) {
+        return uris.get(index);
+    }
+
+    public int getActiveIndex() {
+        return active;
+    }
+
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase() {
+        return factory(active).getMongoDatabase();
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase(String dbName) {
+        return factory(active).getMongoDatabase(dbName);
+    }
+
+    @Override
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return factory(active).getExceptionTranslator();
+    }
+
+    @Override
+    public ClientSession getSession(ClientSessionOptions options) {
+        return factory(active).getSession(options);
+    }
+
+    @Override
+    public MongoDatabaseFactory withSession(ClientSession session) {
+        return factory(active).withSession(session);
+    }
+
+    @Override
+    public void destroy() {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        for (int i = 0; i < deployments.length(); i++) {
+            Deployment deployment = deployments.get(i);
+            if (deployment != null) {
+                deployment.client().close();
+            }
+        }
+    }
+
+    // A proxy of the given client interface that looks up its target on every call
+    static <T> T following(Class<T> type, Supplier<T> target) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "Failover" + type.getSimpleName();
+                default:
+                    try {
+                        return method.invoke(target.get(), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        });
+        return type.cast(proxy);
+    }
+
+    private record Deployment(MongoClient client, SimpleMongoClientDatabaseFactory factory) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ExamPilot.config;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// The reactive side of FailoverMongoDatabaseFactory: work goes to whichever deployment the blocking factory's
+// health check has made active. Each deployment gets its own reactive client, made on first use, so the
+// reactive pool only exists for the deployments the streaming endpoints have actually read from.
+public class FailoverReactiveMongoDatabaseFactory implements ReactiveMongoDatabaseFactory, DisposableBean {
+
+    private final FailoverMongoDatabaseFactory deployments;
+    private final Function<String, MongoClient> clientFactory;
+    private final String databaseName;
+    private final Map<Integer, Deployment> clients = new ConcurrentHashMap<>();
+
+    public FailoverReactiveMongoDatabaseFactory(FailoverMongoDatabaseFactory deployments,
+                                                Function<String, MongoClient> clientFactory, String databaseName) {
+        this.deployments = deployments;
+        this.clientFactory = clientFactory;
+        this.databaseName = databaseName;
+    }
+
+    private SimpleReactiveMongoDatabaseFactory factory() {
+        return deployment().factory();
+    }
+
+    private Deployment deployment() {
+        return clients.computeIfAbsent(deployments.getActiveIndex(), index -> {
+            MongoClient client = clientFactory.apply(deployments.getUri(index));
+            return new Deployment(client, new SimpleReactiveMongoDatabaseFactory(client, databaseName));
+        });
+    }
+
+    public MongoClient getClient() {
+        return deployment().client();
+    }
+
+    // Like FailoverMongoDatabaseFactory.getFailoverClient, for the reactive driver
+    public MongoClient getFailoverClient() {
+        return FailoverMongoDatabaseFactory.following(MongoClient.class, this::getClient);
+    }
+
+    @Override
+    public Mono<MongoDatabase> getMongoDatabase() {
+        return factory().getMongoDatabase();
+    }
+
+    @Override
+    public Mono<MongoDatabase> getMongoDatabase(String dbName) {
+        return factory().getMongoDatabase(dbName);
+    }
+
+    @Override
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return factory().getExceptionTranslator();
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return factory().getCodecRegistry();
+    }
+
+    @Override
+    public Mono<ClientSession> getSession(ClientSessionOptions options) {
+        return factory().getSession(options);
+    }
+
+    @Override
+    public ReactiveMongoDatabaseFactory withSession(ClientSession session) {
+        return factory().withSession(session);
+    }
+
+    @Override
+    public void destroy() {
+        for (Deployment deployment : clients.values()) {
+            deployment.client().close();
+        }
+    }
+
+    private record Deployment(MongoClient client, SimpleReactiveMongoDatabaseFactory factory) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.ExamPilot.config;
+
+import com.example.ExamPilot.service.CredentialCache;
+import com.example.ExamPilot.service.ExamFolderCache;
+import com.example.ExamPilot.service.ExamFolderService;
+import com.example.ExamPilot.service.FolderChangeBroadcaster;
+import com.example.ExamPilot.service.FolderChangeRelay;
+import com.example.ExamPilot.service.LocalFolderStore;
+import com.example.ExamPilot.service.MongoBulkhead;
+import com.example.ExamPilot.service.TimetableWriteCoalescer;
+import com.example.ExamPilot.service.UserService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+// Publishes the counters the bulkhead and caches already keep, so /actuator/prometheus carries the
+// same numbers as /health/bulkhead and /api/auth/cache/stats
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder bulkheadMetrics(MongoBulkhead mongoBulkhead) {
+        return registry -> {
+            Gauge.builder("exampilot.bulkhead.in.flight", mongoBulkhead, MongoBulkhead::getInFlight)
+                    .description("Mongo operations currently holding a bulkhead permit")
+                    .register(registry);
+            Gauge.builder("exampilot.bulkhead.queued", mongoBulkhead, MongoBulkhead::getQueued)
+                    .description("Threads waiting for a bulkhead permit")
+                    .register(registry);
+            Gauge.builder("exampilot.bulkhead.max.concurrent", mongoBulkhead, MongoBulkhead::getMaxConcurrent)
+                    .register(registry);
+            FunctionCounter.builder("exampilot.bulkhead.acquired", mongoBulkhead, MongoBulkhead::getAcquired)
+                    .register(registry);
+            FunctionCounter.builder("exampilot.bulkhead.rejected", mongoBulkhead, MongoBulkhead::getRejected)
+                    .description("Operations turned away with a 503 because no permit freed up in time")
+                    .register(registry);
+            mongoBulkhead.recordWaitsIn(Timer.builder("exampilot.bulkhead.wait")
+                    .description("Time an operation queued for its bulkhead permit before getting it")
+                    .publishPercentileHistogram()
+                    .register(registry));
+        };
+    }
+
+    @Bean
+    public MeterBinder folderCacheMetrics(ExamFolderCache examFolderCache) {
+        return registry -> {
+            cacheMeters(registry, "exam-folders", examFolderCache, ExamFolderCache::getHits,
+                    ExamFolderCache::getMisses, ExamFolderCache::getEvictions, ExamFolderCache::size);
+            Gauge.builder("exampilot.folder.cache.weight", examFolderCache, ExamFolderCache::getWeight)
+                    .description("Timetable days held by the folder cache")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder folderChangeMetrics(FolderChangeBroadcaster folderChangeBroadcaster,
+                                           FolderChangeRelay folderChangeRelay) {
+        return registry -> {
+            Gauge.builder("exampilot.events.subscribers", folderChangeBroadcaster,
+                            FolderChangeBroadcaster::getSubscriberCount)
+                    .description("Open folder-change SSE connections on this instance")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.events.dropped", folderChangeBroadcaster,
+                            FolderChangeBroadcaster::getDropped)
+                    .description("SSE connections closed because the client fell too far behind")
+                    .register(registry);
+            Gauge.builder("exampilot.events.relay.queued", folderChangeRelay, FolderChangeRelay::getQueued)
+                    .description("Folder changes waiting to be written for the change-stream relay")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.events.relay.unrelayed", folderChangeRelay,
+                            FolderChangeRelay::getUnrelayed)
+                    .description("Folder changes pushed only to this instance's viewers because the relay could not take them")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder localFolderStoreMetrics(LocalFolderStore localFolderStore) {
+        return registry -> Gauge.builder("exampilot.local-store.pending", localFolderStore,
+                        LocalFolderStore::pendingCount)
+                .description("Folder writes taken locally and not yet replayed to Mongo")
+                .register(registry);
+    }
+
+    // Absent with app.store.mode=local. Pool metrics come from Micrometer's own pool listener, which
+    // MongoConfig attaches to every client.
+    @Bean
+    public MeterBinder mongoFailoverMetrics(ObjectProvider<FailoverMongoDatabaseFactory> mongoDatabaseFactory) {
+        return registry -> mongoDatabaseFactory.ifAvailable(factory -> {
+            Gauge.builder("exampilot.mongo.active.deployment", factory, FailoverMongoDatabaseFactory::getActiveIndex)
+                    .description("Position of the MongoDB deployment in use; 0 is the configured cluster")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.mongo.failovers", factory, FailoverMongoDatabaseFactory::getFailovers)
+                    .description("Switches between MongoDB deployments after failed health checks")
+                    .register(registry);
+        });
+    }
+
+    // The coalescer is built in ExamFolderService's @PostConstruct, and only when coalescing is on
+    @Bean
+    public MeterBinder timetableWriteMetrics(ExamFolderService examFolderService) {
+        return registry -> {
+            FunctionCounter.builder("exampilot.timetable-writes.coalesced", examFolderService,
+                            timetableWrites(TimetableWriteCoalescer::getCoalesced))
+                    .description("Timetable edits merged into a later write of the same timetable")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.timetable-writes.flushed", examFolderService,
+                            timetableWrites(TimetableWriteCoalescer::getFlushed))
+                    .description("Coalesced timetable writes made to Mongo")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.timetable-writes.failed", examFolderService,
+                            timetableWrites(TimetableWriteCoalescer::getFailed))
+                    .description("Coalesced timetable writes that failed and were retried")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.timetable-writes.dropped", examFolderService,
+                            timetableWrites(TimetableWriteCoalescer::getDropped))
+                    .description("Acknowledged timetable edits not written because the folder changed or went away first")
+                    .register(registry);
+            Gauge.builder("exampilot.timetable-writes.pending", examFolderService,
+                            timetableWrites(TimetableWriteCoalescer::getPendingFolders))
+                    .description("Folders with timetable edits waiting to be written")
+                    .register(registry);
+        };
+    }
+
+    // The credential cache is built in UserService's @PostConstruct, so it is looked up on each read
+    @Bean
+    public MeterBinder credentialCacheMetrics(UserService userService) {
+        return registry -> {
+            cacheMeters(registry, "credentials", userService,
+                    credentials(CredentialCache::getHits), credentials(CredentialCache::getMisses),
+                    credentials(CredentialCache::getEvictions), credentials(CredentialCache::size));
+            // Token requests look users up without a password; kept out of the login hit ratio
+            FunctionCounter.builder("exampilot.credentials.lookups", userService,
+                            credentials(CredentialCache::getLookupHits))
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("exampilot.credentials.lookups", userService,
+                            credentials(CredentialCache::getLookupMisses))
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+
+    // Same names and tags as Micrometer's own cache binders
+    private static <T> void cacheMeters(MeterRegistry registry, String name, T cache,
+                                        ToDoubleFunction<T> hits, ToDoubleFunction<T> misses,
+                                        ToDoubleFunction<T> evictions, ToDoubleFunction<T> size) {
+        Tags tags = Tags.of("cache", name);
+        FunctionCounter.builder("cache.gets", cache, hits).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, misses).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, evictions).tags(tags).register(registry);
+        Gauge.builder("cache.size", cache, size).tags(tags).register(registry);
+    }
+
+    private static ToDoubleFunction<ExamFolderService> timetableWrites(
+            ToDoubleFunction<TimetableWriteCoalescer> value) {
+        return examFolderService -> {
+            TimetableWriteCoalescer coalescer = examFolderService.getTimetableWrites();
+            return coalescer == null ? 0 : value.applyAsDouble(coalescer);
+        };
+    }
+
+    private static ToDoubleFunction<UserService> credentials(ToDoubleFunction<CredentialCache> value) {
+        return userService -> {
+            CredentialCache cache = userService.getCredentialCache();
+            return cache == null ? 0 : value.applyAsDouble(cache);
+        };
+    }
+}
@@ -1,12 +1,14 @@
 package com.example.ExamPilot.config;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
 @Configuration
 @ConditionalOnClass(MongoTemplate.class)
+@ConditionalOnProperty(name = "app.store.mode", havingValue = "mongo", matchIfMissing = true)
 @EnableMongoAuditing
 public class MongoAuditingConfig {
     // This configuration will only be enabled if MongoTemplate is available
@@ -1,23 +1,49 @@
 package com.example.ExamPilot.config;
 
+import com.example.ExamPilot.model.ExamDates;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Not loaded with app.store.mode=local (the local profile), where LocalFolderStore holds the folders
 @Configuration
+@ConditionalOnProperty(name = "app.store.mode", havingValue = "mongo", matchIfMissing = true)
 @ConfigurationProperties(prefix = "spring.data.mongodb")
 public class MongoConfig {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(MongoConfig.class);
+
+    private static final String DATABASE = "exam_scheduler";
+    private static final String LOCAL_URI = "mongodb://localhost:27017";
+
     private String uri;
     
     @Value("${MONGODB_USERNAME:demo_user}")
@@ -28,6 +54,50 @@ public class MongoConfig {
     
     @Value("${MONGODB_CLUSTER:demo_cluster.mongodb.net}")
     private String mongoCluster;
+
+    @Value("${app.mongo.failover-uris:}")
+    private String failoverUris;
+
+    @Value("${app.mongo.failover-threshold:3}")
+    private int failoverThreshold;
+
+    @Value("${app.mongo.health-check-interval-seconds:10}")
+    private long healthCheckIntervalSeconds;
+
+    @Value("${app.mongo.pool.max-size:100}")
+    private int poolMaxSize;
+
+    @Value("${app.mongo.pool.min-size:5}")
+    private int poolMinSize;
+
+    @Value("${app.mongo.pool.max-connecting:2}")
+    private int poolMaxConnecting;
+
+    @Value("${app.mongo.pool.max-wait-ms:2000}")
+    private long poolMaxWaitMillis;
+
+    @Value("${app.mongo.pool.max-idle-ms:300000}")
+    private long poolMaxIdleMillis;
+
+    @Value("${app.mongo.connect-timeout-ms:5000}")
+    private int connectTimeoutMillis;
+
+    @Value("${app.mongo.server-selection-timeout-ms:5000}")
+    private long serverSelectionTimeoutMillis;
+
+    @Value("${app.mongo.warm-up-connections:5}")
+    private int warmUpConnections;
+
+    // Off in the fast-startup profile: no ping or warm-up, the first operation opens the connection
+    @Value("${app.mongo.connect-at-startup:true}")
+    private boolean connectAtStartup;
+
+    // Provided by the actuator's Mongo metrics auto-configuration
+    @Autowired(required = false)
+    private MongoMetricsCommandListener mongoMetricsCommandListener;
+
+    @Autowired(required = false)
+    private MongoMetricsConnectionPoolListener mongoMetricsConnectionPoolListener;
     
     public String getUri() {
         return uri;
@@ -44,69 +114,134 @@ public class MongoConfig {
                uri != null && !uri.contains("demo_user") && !uri.contains("demo_password");
     }
     
+    // For anything that asks for a MongoClient: forwards to the active deployment, so it follows a
+    // failover. The factory owns and closes the real clients.
+    @Bean(destroyMethod = "")
+    @Primary
+    public MongoClient mongoClient(FailoverMongoDatabaseFactory mongoDatabaseFactory) {
+        return mongoDatabaseFactory.getFailoverClient();
+    }
+
+    // Built, connected and warmed up while the context starts, so before the app reports ready. Without
+    // connect-at-startup the first deployment is used until a health check finds it down.
     @Bean
     @Primary
-    public MongoClient mongoClient() {
-        try {
-            if (isValidMongoCredentials() && uri != null && !uri.isEmpty()) {
-                System.out.println("Connecting to MongoDB with provided credentials...");
-                // Remove unsupported options and create a clean connection string
-                String cleanUri = uri.replaceAll("&tlsAllowInvalidCertificates=true", "")
-                                    .replaceAll("&tlsallowinvalidcertificates=true", "");
-                
-                MongoClientSettings settings = MongoClientSettings.builder()
-                    .applyConnectionString(new ConnectionString(cleanUri))
-                    .build();
-                
-                MongoClient client = MongoClients.create(settings);
-                System.out.println("Successfully connected to MongoDB!");
-                return client;
-            } else {
-                System.err.println("MongoDB credentials not properly configured. Using embedded MongoDB for development.");
-                System.err.println("Please set MONGODB_USERNAME, MONGODB_PASSWORD, and MONGODB_CLUSTER environment variables for production.");
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to connect to MongoDB Atlas: " + e.getMessage());
-            System.err.println("Application will continue with embedded MongoDB for development.");
+    public FailoverMongoDatabaseFactory mongoDatabaseFactory() {
+        FailoverMongoDatabaseFactory factory = new FailoverMongoDatabaseFactory(deploymentUris(),
+                connectionString -> MongoClients.create(clientSettings(connectionString)), DATABASE, failoverThreshold);
+        if (connectAtStartup) {
+            factory.selectAtStartup();
+            factory.warmUp(warmUpConnections);
+        }
+        factory.startHealthChecks(healthCheckIntervalSeconds);
+        return factory;
+    }
+
+    // The Atlas cluster when credentials are configured, local MongoDB for development otherwise, then
+    // the failover URIs in order
+    private List<String> deploymentUris() {
+        List<String> uris = new ArrayList<>();
+        if (isValidMongoCredentials() && uri != null && !uri.isEmpty()) {
+            // Remove unsupported options and create a clean connection string
+            uris.add(uri.replaceAll("&tlsAllowInvalidCertificates=true", "")
+                        .replaceAll("&tlsallowinvalidcertificates=true", ""));
+        } else {
+            log.warn("MongoDB credentials not properly configured. Using local MongoDB for development.");
+            log.warn("Please set MONGODB_USERNAME, MONGODB_PASSWORD, and MONGODB_CLUSTER environment variables for production.");
+            uris.add(LOCAL_URI);
         }
-        
-        // Return embedded MongoDB client for development/testing
-        try {
-            return MongoClients.create("mongodb://localhost:27017");
-        } catch (Exception e) {
-            System.err.println("Failed to connect to local MongoDB as well. Creating minimal client.");
-            // Create a minimal connection that won't be used but prevents null issues
-            return MongoClients.create();
+        for (String failoverUri : failoverUris.split(",")) {
+            if (!failoverUri.isBlank() && !uris.contains(failoverUri.trim())) {
+                uris.add(failoverUri.trim());
+            }
         }
+        return uris;
     }
-    
+
+    // Exam dates are LocalDate, stored as UTC midnight so range queries do not depend on the server zone.
+    // Documents written before the migration still hold strings, which are parsed on read.
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new LocalDateToDateConverter(), new DateToLocalDateConverter(), new StringToLocalDateConverter()));
+    }
+
     @Bean
     @Primary
-    public MongoDatabaseFactory mongoDatabaseFactory() {
-        try {
-            MongoClient client = mongoClient();
-            if (client != null) {
-                return new SimpleMongoClientDatabaseFactory(client, "exam_scheduler");
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to create MongoDB factory: " + e.getMessage());
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory mongoDatabaseFactory,
+                                      MappingMongoConverter mappingMongoConverter) {
+        return new MongoTemplate(mongoDatabaseFactory, mappingMongoConverter);
+    }
+
+    // Non-blocking access for the streaming read endpoints. It is a separate driver, so it has its own pool,
+    // sized by the same settings, and it switches deployment whenever the blocking factory does.
+    @Bean
+    public FailoverReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory(
+            FailoverMongoDatabaseFactory mongoDatabaseFactory) {
+        return new FailoverReactiveMongoDatabaseFactory(mongoDatabaseFactory,
+                connectionString -> com.mongodb.reactivestreams.client.MongoClients.create(clientSettings(connectionString)),
+                DATABASE);
+    }
+
+    @Bean(destroyMethod = "")
+    public com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient(
+            FailoverReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory) {
+        return reactiveMongoDatabaseFactory.getFailoverClient();
+    }
+
+    // Every command's latency is recorded as mongodb.driver.commands, tagged by command and collection, and
+    // the pool's size, checked-out connections and waiters as mongodb.driver.pool.*. Pool and timeout
+    // settings here take precedence over the same options in the URI.
+    private MongoClientSettings clientSettings(String connectionString) {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .applyToConnectionPoolSettings(pool -> {
+                    pool.maxSize(poolMaxSize)
+                            .minSize(poolMinSize)
+                            .maxConnecting(poolMaxConnecting)
+                            .maxWaitTime(poolMaxWaitMillis, TimeUnit.MILLISECONDS)
+                            .maxConnectionIdleTime(poolMaxIdleMillis, TimeUnit.MILLISECONDS);
+                    if (mongoMetricsConnectionPoolListener != null) {
+                        pool.addConnectionPoolListener(mongoMetricsConnectionPoolListener);
+                    }
+                })
+                .applyToSocketSettings(socket -> socket.connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS))
+                // Fail fast when the cluster is unreachable, so the local folder store takes over quickly
+                .applyToClusterSettings(cluster ->
+                        cluster.serverSelectionTimeout(serverSelectionTimeoutMillis, TimeUnit.MILLISECONDS));
+        if (mongoMetricsCommandListener != null) {
+            builder.addCommandListener(mongoMetricsCommandListener);
         }
-        // This should never be null due to the fallback client above
-        return new SimpleMongoClientDatabaseFactory(MongoClients.create(), "exam_scheduler");
+        return builder.build();
     }
-    
+
     @Bean
-    @Primary
-    public MongoTemplate mongoTemplate() {
-        try {
-            MongoDatabaseFactory factory = mongoDatabaseFactory();
-            if (factory != null) {
-                return new MongoTemplate(factory);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to create MongoTemplate: " + e.getMessage());
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory,
+                                                       MappingMongoConverter mappingMongoConverter) {
+        return new ReactiveMongoTemplate(reactiveMongoDatabaseFactory, mappingMongoConverter);
+    }
+
+    @WritingConverter
+    static class LocalDateToDateConverter implements Converter<LocalDate, Date> {
+        @Override
+        public Date convert(LocalDate source) {
+            return ExamDates.toDate(source);
+        }
+    }
+
+    @ReadingConverter
+    static class DateToLocalDateConverter implements Converter<Date, LocalDate> {
+        @Override
+        public LocalDate convert(Date source) {
+            return ExamDates.fromDate(source);
+        }
+    }
+
+    @ReadingConverter
+    static class StringToLocalDateConverter implements Converter<String, LocalDate> {
+        @Override
+        public LocalDate convert(String source) {
+            return ExamDates.parse(source);
         }
-        // This should never be null due to the fallback factory above
-        return new MongoTemplate(mongoDatabaseFactory());
     }
 }
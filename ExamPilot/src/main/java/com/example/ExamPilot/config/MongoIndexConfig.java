@@ -0,0 +1,49 @@
+package com.example.ExamPilot.config;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.FolderChange;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+// Creates the indexes declared on the model classes. createIndex is a no-op for an
+// index that already exists with the same definition, so this is safe on every start.
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    private static final Class<?>[] INDEXED_DOCUMENTS = { ExamFolder.class, Timetable.class, User.class, FolderChange.class };
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        if (mongoTemplate == null) {
+            return;
+        }
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> type : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+                try {
+                    indexOps.createIndex(index);
+                } catch (Exception e) {
+                    log.error("Failed to create index {} on {}: {}", index.getIndexKeys().toJson(), type.getSimpleName(),
+                            e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.ExamPilot.config;
 
+import com.example.ExamPilot.service.TokenService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.Customizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -12,14 +15,19 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.beans.factory.annotation.Value;
 
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     private final CorsConfigurationSource corsConfigurationSource;
+    private final TokenService tokenService;
 
     @Value("${app.admin.username}")
     private String adminUsername;
@@ -27,8 +35,13 @@ public class SecurityConfig {
     @Value("${app.admin.password}")
     private String adminPassword;
 
-    public SecurityConfig(CorsConfigurationSource corsConfigurationSource) {
+    // Basic auth stays available for clients that have not switched to bearer tokens yet
+    @Value("${app.auth.basic-enabled:true}")
+    private boolean basicAuthEnabled;
+
+    public SecurityConfig(CorsConfigurationSource corsConfigurationSource, TokenService tokenService) {
         this.corsConfigurationSource = corsConfigurationSource;
+        this.tokenService = tokenService;
     }
 
     @Bean
@@ -52,12 +65,25 @@ public class SecurityConfig {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource))
             .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                // The dispatch that finishes an SSE or streamed response belongs to a request already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/", "/home", "/public/**").permitAll()
+                .requestMatchers("/api/auth/login", "/api/auth/token").permitAll()
+                // Metrics expose load and internals, so scrapers authenticate like any other client
+                .requestMatchers("/actuator/health").permitAll()
                 .requestMatchers("/api/**").authenticated()
                 .anyRequest().authenticated()
             )
-            .httpBasic(Customizer.withDefaults());
+            .addFilterBefore(new JwtAuthenticationFilter(tokenService), BasicAuthenticationFilter.class);
+
+        if (basicAuthEnabled) {
+            http.httpBasic(Customizer.withDefaults());
+        } else {
+            http.exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)));
+        }
         
         return http.build();
     }
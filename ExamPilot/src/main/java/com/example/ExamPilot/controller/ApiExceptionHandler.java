@@ -0,0 +1,38 @@
+package com.example.ExamPilot.controller;
+
+import com.example.ExamPilot.service.BulkheadFullException;
+import com.example.ExamPilot.service.DatabaseUnavailableException;
+import com.example.ExamPilot.service.TimetableIdInUseException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // Shed load fast instead of letting requests pile up behind the database
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<?> handleBulkheadFull(BulkheadFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    // Mongo failed and there was no copy to answer from; an empty or partial 200 would look like lost data
+    @ExceptionHandler(DatabaseUnavailableException.class)
+    public ResponseEntity<?> handleDatabaseUnavailable(DatabaseUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    // Not a folder name clash, which the controller answers itself
+    @ExceptionHandler(TimetableIdInUseException.class)
+    public ResponseEntity<?> handleTimetableIdInUse(TimetableIdInUseException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.ExamPilot.controller;
 
 import com.example.ExamPilot.model.User;
+import com.example.ExamPilot.service.BulkheadFullException;
+import com.example.ExamPilot.service.CredentialCache;
+import com.example.ExamPilot.service.TokenService;
 import com.example.ExamPilot.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +21,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenService tokenService;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestHeader("Authorization") String authHeader) {
         try {
@@ -26,9 +32,7 @@ public class AuthController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid authorization header"));
             }
 
-            String base64Credentials = authHeader.substring("Basic ".length());
-            String credentials = new String(Base64.getDecoder().decode(base64Credentials));
-            String[] parts = credentials.split(":", 2);
+            String[] parts = parseBasicCredentials(authHeader);
 
             if (parts.length != 2) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid credentials format"));
@@ -40,15 +44,55 @@ public class AuthController {
             boolean isAuthenticated = userService.authenticateUser(username, password);
 
             if (isAuthenticated) {
+                User user = authenticatedUser(username);
+                if (user == null) {
+                    return userUnavailable();
+                }
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
                 response.put("message", "Login successful");
                 response.put("username", username);
+                response.put("token", tokenService.issueToken(user));
                 return ResponseEntity.ok(response);
             } else {
                 return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
             }
 
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Authentication failed: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/token")
+    public ResponseEntity<?> issueToken(@RequestHeader("Authorization") String authHeader) {
+        try {
+            if (authHeader == null || !authHeader.startsWith("Basic ")) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid authorization header"));
+            }
+
+            String[] parts = parseBasicCredentials(authHeader);
+            if (parts.length != 2) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid credentials format"));
+            }
+
+            if (!userService.authenticateUser(parts[0], parts[1])) {
+                return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
+            }
+
+            User user = authenticatedUser(parts[0]);
+            if (user == null) {
+                return userUnavailable();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("token", tokenService.issueToken(user));
+            response.put("tokenType", "Bearer");
+            response.put("expiresIn", tokenService.getExpirationSeconds());
+            return ResponseEntity.ok(response);
+
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Authentication failed: " + e.getMessage()));
         }
@@ -57,17 +101,28 @@ public class AuthController {
     @GetMapping("/user")
     public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String authHeader) {
         try {
-            String base64Credentials = authHeader.substring("Basic ".length());
-            String credentials = new String(Base64.getDecoder().decode(base64Credentials));
-            String[] parts = credentials.split(":", 2);
-            
+            // Bearer tokens carry everything needed, no lookup required
+            if (authHeader.startsWith("Bearer ")) {
+                Map<String, Object> claims = tokenService.validateToken(authHeader.substring("Bearer ".length()));
+                if (claims == null) {
+                    return ResponseEntity.status(401).body(Map.of("error", "Invalid token"));
+                }
+                Map<String, Object> response = new HashMap<>();
+                response.put("id", claims.get("uid"));
+                response.put("username", claims.get("sub"));
+                response.put("role", claims.get("role"));
+                return ResponseEntity.ok(response);
+            }
+
+            String[] parts = parseBasicCredentials(authHeader);
+
             if (parts.length != 2) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid credentials format"));
             }
 
             String username = parts[0];
             User user = userService.findByUsername(username);
-            
+
             if (user != null) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("id", user.getId());
@@ -78,8 +133,43 @@ public class AuthController {
                 return ResponseEntity.notFound().build();
             }
 
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to get user: " + e.getMessage()));
         }
     }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCredentialCacheStats() {
+        CredentialCache cache = userService.getCredentialCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        Map<String, Object> response = new HashMap<>();
+        response.put("hits", hits);
+        response.put("misses", misses);
+        response.put("lookupHits", cache.getLookupHits());
+        response.put("lookupMisses", cache.getLookupMisses());
+        response.put("evictions", cache.getEvictions());
+        response.put("size", cache.size());
+        response.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return ResponseEntity.ok(response);
+    }
+
+    String[] parseBasicCredentials(String authHeader) {
+        String base64Credentials = authHeader.substring("Basic ".length());
+        String credentials = new String(Base64.getDecoder().decode(base64Credentials));
+        return credentials.split(":", 2);
+    }
+
+    // The user was just verified, so this is served from the credential cache. Null when the database
+    // cannot say who it is and it is not the configured admin; the role is never guessed.
+    private User authenticatedUser(String username) {
+        User user = userService.findByUsername(username);
+        return user != null ? user : userService.fallbackUser(username);
+    }
+
+    private ResponseEntity<?> userUnavailable() {
+        return ResponseEntity.status(503).body(Map.of("error", "User details are unavailable, try again shortly"));
+    }
 }
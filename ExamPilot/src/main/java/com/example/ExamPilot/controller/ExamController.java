@@ -0,0 +1,68 @@
+package com.example.ExamPilot.controller;
+
+import com.example.ExamPilot.model.CalendarDay;
+import com.example.ExamPilot.model.ScheduledExamDay;
+import com.example.ExamPilot.service.ExamCalendarService;
+import com.example.ExamPilot.service.ExamFolderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/exams")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174", "http://localhost:3000"})
+public class ExamController {
+
+    private static final long MAX_RANGE_DAYS = 366;
+
+    @Autowired
+    private ExamFolderService examFolderService;
+
+    @Autowired
+    private ExamCalendarService examCalendarService;
+
+    // e.g. /api/exams?userId=42&from=2025-05-05&to=2025-05-11 for "what's on next week"
+    @GetMapping
+    public ResponseEntity<?> getExamsInRange(
+            @RequestParam String userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        ResponseEntity<?> invalid = checkRange(from, to);
+        if (invalid != null) {
+            return invalid;
+        }
+        List<ScheduledExamDay> exams = examFolderService.getExamDaysInRange(userId, from, to);
+        return ResponseEntity.ok(exams);
+    }
+
+    // Exams grouped by day; "to" defaults to "from" for a single day's view
+    @GetMapping("/calendar")
+    public ResponseEntity<?> getCalendar(
+            @RequestParam String userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : from;
+        ResponseEntity<?> invalid = checkRange(from, end);
+        if (invalid != null) {
+            return invalid;
+        }
+        List<CalendarDay> calendar = examCalendarService.getCalendar(userId, from, end);
+        return ResponseEntity.ok(calendar);
+    }
+
+    private ResponseEntity<?> checkRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'to' must not be before 'from'"));
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Date range is limited to " + MAX_RANGE_DAYS + " days"));
+        }
+        return null;
+    }
+}
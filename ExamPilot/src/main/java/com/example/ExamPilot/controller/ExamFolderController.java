@@ -1,13 +1,38 @@
 package com.example.ExamPilot.controller;
 
 import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.ExamFolderSummary;
 // import com.examscheduler.model.Timetable;
+import com.example.ExamPilot.model.ScheduleRequest;
 import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.TimetablePatchOperation;
+import com.example.ExamPilot.model.User;
+import com.example.ExamPilot.service.ExamFolderCache;
+import com.example.ExamPilot.service.ExamFolderExportService;
+import com.example.ExamPilot.service.ExamFolderImportService;
 import com.example.ExamPilot.service.ExamFolderService;
+import com.example.ExamPilot.service.FolderChangeBroadcaster;
+import com.example.ExamPilot.service.SchedulingEngine;
+import com.example.ExamPilot.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,23 +44,170 @@ public class ExamFolderController {
     @Autowired
     private ExamFolderService examFolderService;
 
+    @Autowired
+    private SchedulingEngine schedulingEngine;
+
+    @Autowired
+    private ExamFolderImportService examFolderImportService;
+
+    @Autowired
+    private ExamFolderExportService examFolderExportService;
+
+    @Autowired
+    private ExamFolderCache examFolderCache;
+
+    @Autowired
+    private FolderChangeBroadcaster folderChangeBroadcaster;
+
+    @Autowired
+    private UserService userService;
+
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<ExamFolder>> getExamFoldersByUser(@PathVariable String userId) {
+    public ResponseEntity<List<ExamFolder>> getExamFoldersByUser(@PathVariable String userId, WebRequest webRequest) {
+        // Answer 304 from the aggregate stamp before any folder is loaded
+        String etag = examFolderService.getFolderListingETag(userId);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<ExamFolder> folders = examFolderService.getExamFoldersByUserId(userId);
         return ResponseEntity.ok(folders);
     }
 
+    // Server-sent "folder-change" events for every write to the user's folders, so an open client can apply
+    // the change (or refetch just that folder) instead of reloading the whole list after each edit. Callers
+    // can only watch their own folders.
+    @GetMapping(value = "/user/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToFolderChanges(@PathVariable String userId,
+                                                               Authentication authentication) {
+        if (!isOwnUserId(authentication, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        SseEmitter emitter = folderChangeBroadcaster.subscribe(userId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/user/{userId}/summaries")
+    public ResponseEntity<?> getExamFolderSummariesByUser(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest webRequest) {
+        String etag = examFolderService.getFolderListingETag(userId);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        int pageSize = Math.max(1, Math.min(limit, 200));
+        List<ExamFolderSummary> summaries;
+        try {
+            // One extra row tells us whether another page exists
+            summaries = examFolderService.getExamFolderSummaries(userId, cursor, pageSize + 1);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            response.put("nextCursor", examFolderService.encodeCursor(summaries.get(pageSize - 1)));
+        } else {
+            response.put("nextCursor", null);
+        }
+        response.put("folders", summaries);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/user/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportTimetables(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "csv") String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"timetables.csv\"")
+                    .body(output -> examFolderExportService.writeCsv(userId, output));
+        }
+        if ("ics".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("text/calendar; charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"timetables.ics\"")
+                    .body(output -> examFolderExportService.writeIcs(userId, output));
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getFolderCacheStats() {
+        long hits = examFolderCache.getHits();
+        long misses = examFolderCache.getMisses();
+        Map<String, Object> response = new HashMap<>();
+        response.put("hits", hits);
+        response.put("misses", misses);
+        response.put("evictions", examFolderCache.getEvictions());
+        response.put("size", examFolderCache.size());
+        response.put("weight", examFolderCache.getWeight());
+        response.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{folderId}")
+    public ResponseEntity<ExamFolder> getExamFolder(@PathVariable String folderId, WebRequest webRequest) {
+        ExamFolder stamp = examFolderService.getExamFolderStamp(folderId);
+        if (stamp != null && webRequest.checkNotModified(folderETag(stamp), lastModified(stamp))) {
+            return null;
+        }
+        ExamFolder folder = examFolderService.getExamFolderById(folderId);
+        if (folder != null) {
+            return ResponseEntity.ok(folder);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{folderId}/timetables/{timetableId}")
+    public ResponseEntity<Timetable> getTimetableInFolder(
+            @PathVariable String folderId,
+            @PathVariable String timetableId,
+            WebRequest webRequest) {
+        ExamFolder stamp = examFolderService.getExamFolderStamp(folderId);
+        if (stamp == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(folderETag(stamp), lastModified(stamp))) {
+            return null;
+        }
+        Timetable timetable = examFolderService.getTimetableInFolder(folderId, timetableId);
+        if (timetable != null) {
+            return ResponseEntity.ok(timetable);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PostMapping
-    public ResponseEntity<ExamFolder> createExamFolder(@RequestBody ExamFolder examFolder) {
-        ExamFolder savedFolder = examFolderService.createExamFolder(examFolder);
-        return ResponseEntity.ok(savedFolder);
+    public ResponseEntity<?> createExamFolder(@RequestBody ExamFolder examFolder) {
+        try {
+            ExamFolder savedFolder = examFolderService.createExamFolder(examFolder);
+            return ResponseEntity.ok(savedFolder);
+        } catch (DuplicateKeyException e) {
+            return duplicateName(examFolder.getFolderName());
+        }
     }
 
     @PutMapping("/{folderId}")
-    public ResponseEntity<ExamFolder> updateExamFolder(
+    public ResponseEntity<?> updateExamFolder(
             @PathVariable String folderId, 
             @RequestBody ExamFolder examFolder) {
-        ExamFolder updatedFolder = examFolderService.updateExamFolder(folderId, examFolder);
+        ExamFolder updatedFolder;
+        try {
+            updatedFolder = examFolderService.updateExamFolder(folderId, examFolder);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (DuplicateKeyException e) {
+            return duplicateName(examFolder.getFolderName());
+        }
         if (updatedFolder != null) {
             return ResponseEntity.ok(updatedFolder);
         } else {
@@ -54,9 +226,33 @@ public class ExamFolderController {
     }
 
     @PostMapping("/{folderId}/timetables")
-    public ResponseEntity<ExamFolder> addTimetableToFolder(
+    public ResponseEntity<?> addTimetableToFolder(
             @PathVariable String folderId, 
-            @RequestBody Timetable timetable) {
+            @RequestBody Timetable timetable,
+            @RequestParam(required = false) Long version) {
+        ExamFolder updatedFolder;
+        try {
+            updatedFolder = examFolderService.addTimetableToFolder(folderId, timetable, version);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        }
+        if (updatedFolder != null) {
+            return ResponseEntity.ok(updatedFolder);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/{folderId}/timetables/generate")
+    public ResponseEntity<?> generateTimetable(
+            @PathVariable String folderId,
+            @RequestBody ScheduleRequest request) {
+        Timetable timetable;
+        try {
+            timetable = schedulingEngine.generate(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         ExamFolder updatedFolder = examFolderService.addTimetableToFolder(folderId, timetable);
         if (updatedFolder != null) {
             return ResponseEntity.ok(updatedFolder);
@@ -66,11 +262,17 @@ public class ExamFolderController {
     }
 
     @PutMapping("/{folderId}/timetables/{timetableId}")
-    public ResponseEntity<ExamFolder> updateTimetableInFolder(
+    public ResponseEntity<?> updateTimetableInFolder(
             @PathVariable String folderId,
             @PathVariable String timetableId,
-            @RequestBody Timetable timetable) {
-        ExamFolder updatedFolder = examFolderService.updateTimetableInFolder(folderId, timetableId, timetable);
+            @RequestBody Timetable timetable,
+            @RequestParam(required = false) Long version) {
+        ExamFolder updatedFolder;
+        try {
+            updatedFolder = examFolderService.updateTimetableInFolder(folderId, timetableId, timetable, version);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        }
         if (updatedFolder != null) {
             return ResponseEntity.ok(updatedFolder);
         } else {
@@ -78,11 +280,43 @@ public class ExamFolderController {
         }
     }
 
+    // Body is a JSON Patch array such as [{"op": "replace", "path": "/timetable/3/afternoon/duration", "value": "2h"}];
+    // answers with the patched timetable only, and the folder's new version in the ETag
+    @PatchMapping(value = "/{folderId}/timetables/{timetableId}",
+            consumes = {"application/json-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patchTimetableInFolder(
+            @PathVariable String folderId,
+            @PathVariable String timetableId,
+            @RequestBody List<TimetablePatchOperation> operations,
+            @RequestParam(required = false) Long version) {
+        ExamFolder patchedFolder;
+        try {
+            patchedFolder = examFolderService.patchTimetableInFolder(folderId, timetableId, operations, version);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        }
+        if (patchedFolder != null) {
+            return ResponseEntity.ok()
+                    .eTag(folderETag(patchedFolder))
+                    .body(patchedFolder.getTimetables().get(0));
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @DeleteMapping("/{folderId}/timetables/{timetableId}")
-    public ResponseEntity<ExamFolder> deleteTimetableFromFolder(
+    public ResponseEntity<?> deleteTimetableFromFolder(
             @PathVariable String folderId,
-            @PathVariable String timetableId) {
-        ExamFolder updatedFolder = examFolderService.deleteTimetableFromFolder(folderId, timetableId);
+            @PathVariable String timetableId,
+            @RequestParam(required = false) Long version) {
+        ExamFolder updatedFolder;
+        try {
+            updatedFolder = examFolderService.deleteTimetableFromFolder(folderId, timetableId, version);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        }
         if (updatedFolder != null) {
             return ResponseEntity.ok(updatedFolder);
         } else {
@@ -90,15 +324,64 @@ public class ExamFolderController {
         }
     }
 
+    // Body is a JSON array or NDJSON of timetables; the response is one NDJSON result line per item
+    @PostMapping("/import")
+    public void importTimetables(
+            @RequestParam String userId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        examFolderImportService.importTimetables(userId, request.getInputStream(), response.getOutputStream());
+    }
+
     @PostMapping("/create-with-timetable")
-    public ResponseEntity<ExamFolder> createFolderWithTimetable(
+    public ResponseEntity<?> createFolderWithTimetable(
             @RequestParam String userId,
             @RequestBody Timetable timetable) {
-        ExamFolder newFolder = examFolderService.createFolderForTimetable(userId, timetable);
+        ExamFolder newFolder;
+        try {
+            newFolder = examFolderService.createFolderForTimetable(userId, timetable);
+        } catch (DuplicateKeyException e) {
+            return duplicateName(timetable.getTableName());
+        }
         if (newFolder != null) {
             return ResponseEntity.ok(newFolder);
         } else {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    // The id is the bearer token's uid claim; a Basic-authenticated caller's is looked up by username
+    private boolean isOwnUserId(Authentication authentication, String userId) {
+        if (authentication == null) {
+            return false;
+        }
+        if (authentication.getDetails() instanceof Map<?, ?> claims && claims.get("uid") != null) {
+            return userId.equals(String.valueOf(claims.get("uid")));
+        }
+        User user = userService.findByUsername(authentication.getName());
+        return user != null && userId.equals(user.getId());
+    }
+
+    private ResponseEntity<?> conflict(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+
+    private ResponseEntity<?> duplicateName(String folderName) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "A folder named '" + folderName + "' already exists"));
+    }
+
+    private String folderETag(ExamFolder stamp) {
+        String revision = stamp.getVersion() != null ? "v" + stamp.getVersion() : "t" + lastModified(stamp);
+        return "\"" + stamp.getId() + "-" + revision + "\"";
+    }
+
+    private long lastModified(ExamFolder stamp) {
+        if (stamp.getUpdatedAt() == null) {
+            return -1;
+        }
+        return stamp.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
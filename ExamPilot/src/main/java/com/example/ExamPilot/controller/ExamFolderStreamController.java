@@ -0,0 +1,41 @@
+package com.example.ExamPilot.controller;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.service.ExamFolderStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Streaming counterparts of the read endpoints in ExamFolderController. Each element is written as one
+// NDJSON line as soon as it arrives; the next one is requested only after the previous write completes,
+// and the request thread is released while waiting.
+@RestController
+@RequestMapping("/api/exam-folders/stream")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174", "http://localhost:3000"})
+public class ExamFolderStreamController {
+
+    @Autowired
+    private ExamFolderStreamService examFolderStreamService;
+
+    @GetMapping(value = "/user/{userId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ExamFolder> streamExamFoldersByUser(@PathVariable String userId) {
+        return examFolderStreamService.streamFoldersByUserId(userId);
+    }
+
+    @GetMapping(value = "/{folderId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ExamFolder> streamExamFolder(@PathVariable String folderId) {
+        return examFolderStreamService.findFolderById(folderId)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Exam folder not found")))
+                .flux();
+    }
+
+    @GetMapping(value = "/{folderId}/timetables", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Timetable> streamTimetables(@PathVariable String folderId) {
+        return examFolderStreamService.streamTimetables(folderId);
+    }
+}
@@ -1,11 +1,20 @@
 package com.example.ExamPilot.controller;
 
+import com.example.ExamPilot.service.MongoBulkhead;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @RestController
 public class HomeController {
 
+    @Autowired
+    private MongoBulkhead mongoBulkhead;
+
     @GetMapping("/")
     public String home() {
         return "ExamPilot Application is running successfully!";
@@ -15,4 +24,18 @@ public class HomeController {
     public String health() {
         return "OK";
     }
+
+    @GetMapping("/health/bulkhead")
+    public ResponseEntity<?> bulkheadStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("maxConcurrent", mongoBulkhead.getMaxConcurrent());
+        response.put("inFlight", mongoBulkhead.getInFlight());
+        response.put("queued", mongoBulkhead.getQueued());
+        response.put("acquired", mongoBulkhead.getAcquired());
+        response.put("rejected", mongoBulkhead.getRejected());
+        response.put("averageWaitMillis", mongoBulkhead.getAverageWaitMillis());
+        response.put("maxWaitMillis", mongoBulkhead.getMaxWaitNanos() / 1_000_000.0);
+        response.put("virtualThreads", Thread.currentThread().isVirtual());
+        return ResponseEntity.ok(response);
+    }
 }
@@ -0,0 +1,33 @@
+package com.example.ExamPilot.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Every exam a user has on one date, across all folders and timetables
+public class CalendarDay {
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+    private LocalDate date;
+    private String day;
+    private List<CalendarExam> exams = new ArrayList<>();
+
+    // Constructors
+    public CalendarDay() {}
+
+    public CalendarDay(LocalDate date, String day) {
+        this.date = date;
+        this.day = day;
+    }
+
+    // Getters and Setters
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public String getDay() { return day; }
+    public void setDay(String day) { this.day = day; }
+
+    public List<CalendarExam> getExams() { return exams; }
+    public void setExams(List<CalendarExam> exams) { this.exams = exams; }
+}
@@ -0,0 +1,62 @@
+package com.example.ExamPilot.model;
+
+// One exam session on a calendar day, with just enough context to link back to its timetable
+public class CalendarExam {
+    private String folderId;
+    private String timetableId;
+    private String tableName;
+    private String sessionId;
+    private String session;
+    private String time;
+    private String code;
+    private String name;
+    private String duration;
+    private String credits;
+
+    // Constructors
+    public CalendarExam() {}
+
+    public CalendarExam(ScheduledExamDay day, Timetable.ExamSession exam) {
+        this.folderId = day.getFolderId();
+        this.timetableId = day.getTimetableId();
+        this.tableName = day.getTableName();
+        this.sessionId = exam.getId();
+        this.session = exam.getSession();
+        this.time = exam.getTime();
+        this.code = exam.getCode();
+        this.name = exam.getName();
+        this.duration = exam.getDuration();
+        this.credits = exam.getCredits();
+    }
+
+    // Getters and Setters
+    public String getFolderId() { return folderId; }
+    public void setFolderId(String folderId) { this.folderId = folderId; }
+
+    public String getTimetableId() { return timetableId; }
+    public void setTimetableId(String timetableId) { this.timetableId = timetableId; }
+
+    public String getTableName() { return tableName; }
+    public void setTableName(String tableName) { this.tableName = tableName; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public String getSession() { return session; }
+    public void setSession(String session) { this.session = session; }
+
+    public String getTime() { return time; }
+    public void setTime(String time) { this.time = time; }
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDuration() { return duration; }
+    public void setDuration(String duration) { this.duration = duration; }
+
+    public String getCredits() { return credits; }
+    public void setCredits(String credits) { this.credits = credits; }
+}
@@ -0,0 +1,60 @@
+package com.example.ExamPilot.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+// Exam dates are stored as BSON dates at UTC midnight. Clients and older documents use
+// en-GB dd/MM/yyyy (timetable days) or ISO yyyy-MM-dd (date inputs); both are accepted.
+public final class ExamDates {
+
+    public static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter LENIENT_DAY_FORMAT = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    private ExamDates() {
+    }
+
+    // Null when the value is blank or in neither format
+    public static LocalDate parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return trimmed.contains("/") ? LocalDate.parse(trimmed, LENIENT_DAY_FORMAT) : LocalDate.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    public static LocalDate fromDate(Date date) {
+        return date.toInstant().atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    public static class LenientDeserializer extends JsonDeserializer<LocalDate> {
+        @Override
+        public LocalDate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String text = parser.getValueAsString();
+            if (text == null || text.trim().isEmpty()) {
+                return null;
+            }
+            LocalDate date = parse(text);
+            if (date == null) {
+                return (LocalDate) context.handleWeirdStringValue(LocalDate.class, text,
+                        "expected dd/MM/yyyy or yyyy-MM-dd");
+            }
+            return date;
+        }
+    }
+}
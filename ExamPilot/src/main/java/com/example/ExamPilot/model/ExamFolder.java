@@ -1,21 +1,39 @@
 package com.example.ExamPilot.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
 
 @Document(collection = "exam_folders")
+@CompoundIndexes({
+    // findByUserIdAndFolderName, name allocation, and the userId prefix for findByUserId/deleteByUserId
+    @CompoundIndex(name = "user_folder_name", def = "{'userId': 1, 'folderName': 1}", unique = true),
+    // Newest-first summaries with the (updatedAt, id) keyset, and the listing ETag aggregate
+    @CompoundIndex(name = "user_updated", def = "{'userId': 1, 'updatedAt': -1, '_id': -1}")
+})
 public class ExamFolder {
     @Id
     private String id;
     private String userId;
     private String folderName;
     private String description;
+    // Kept in the timetables collection; filled in by the services only when a folder is returned whole
+    @Transient
     private List<Timetable> timetables = new ArrayList<>();
+    // Only present on documents written before timetables moved out and not migrated yet
+    @ReadOnlyProperty
+    @Field("timetables")
+    private List<Object> embeddedTimetables;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     // Constructors
     public ExamFolder() {
@@ -46,12 +64,17 @@ public class ExamFolder {
     public List<Timetable> getTimetables() { return timetables; }
     public void setTimetables(List<Timetable> timetables) { this.timetables = timetables; }
 
+    public boolean hasEmbeddedTimetables() { return embeddedTimetables != null; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     // Helper methods
     public void addTimetable(Timetable timetable) {
         this.timetables.add(timetable);
@@ -0,0 +1,37 @@
+package com.example.ExamPilot.model;
+
+import org.springframework.data.annotation.Id;
+import java.time.LocalDateTime;
+
+// Sidebar view of an ExamFolder: no embedded timetables, only their count
+public class ExamFolderSummary {
+    @Id
+    private String id;
+    private String folderName;
+    private String description;
+    private int timetableCount;
+    private LocalDateTime updatedAt;
+    private Long version;
+
+    // Constructors
+    public ExamFolderSummary() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFolderName() { return folderName; }
+    public void setFolderName(String folderName) { this.folderName = folderName; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public int getTimetableCount() { return timetableCount; }
+    public void setTimetableCount(int timetableCount) { this.timetableCount = timetableCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -0,0 +1,57 @@
+package com.example.ExamPilot.model;
+
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// What a client needs to apply one write to its copy of the folder list: which folder (and timetable)
+// changed, how, and the folder's version afterwards. Sent over /api/exam-folders/user/{userId}/events and,
+// when changes are relayed between instances, kept briefly in folder_changes.
+@Document(collection = "folder_changes")
+public class FolderChange {
+
+    public enum Operation {
+        FOLDER_CREATED, FOLDER_UPDATED, FOLDER_DELETED, TIMETABLE_ADDED, TIMETABLE_UPDATED, TIMETABLE_DELETED
+    }
+
+    private String userId;
+    private String folderId;
+    private String timetableId;
+    private Operation operation;
+    // Null after a delete
+    private Long version;
+    @Indexed(name = "changed_at_ttl", expireAfter = "1h")
+    private LocalDateTime at;
+
+    // Constructors
+    public FolderChange() {}
+
+    public FolderChange(String userId, String folderId, String timetableId, Operation operation, Long version) {
+        this.userId = userId;
+        this.folderId = folderId;
+        this.timetableId = timetableId;
+        this.operation = operation;
+        this.version = version;
+        this.at = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getFolderId() { return folderId; }
+    public void setFolderId(String folderId) { this.folderId = folderId; }
+
+    public String getTimetableId() { return timetableId; }
+    public void setTimetableId(String timetableId) { this.timetableId = timetableId; }
+
+    public Operation getOperation() { return operation; }
+    public void setOperation(Operation operation) { this.operation = operation; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public LocalDateTime getAt() { return at; }
+    public void setAt(LocalDateTime at) { this.at = at; }
+}
@@ -0,0 +1,48 @@
+package com.example.ExamPilot.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScheduleRequest {
+    private String tableName;
+    private String startDate;
+    private String endDate;
+    private Integer dayGap;
+    private List<Subject> subjects = new ArrayList<>();
+
+    // Constructors
+    public ScheduleRequest() {}
+
+    // Getters and Setters
+    public String getTableName() { return tableName; }
+    public void setTableName(String tableName) { this.tableName = tableName; }
+
+    public String getStartDate() { return startDate; }
+    public void setStartDate(String startDate) { this.startDate = startDate; }
+
+    public String getEndDate() { return endDate; }
+    public void setEndDate(String endDate) { this.endDate = endDate; }
+
+    public Integer getDayGap() { return dayGap; }
+    public void setDayGap(Integer dayGap) { this.dayGap = dayGap; }
+
+    public List<Subject> getSubjects() { return subjects; }
+    public void setSubjects(List<Subject> subjects) { this.subjects = subjects; }
+
+    // Subject as entered in the create form
+    public static class Subject {
+        private String name;
+        private String duration;
+        private String credits;
+
+        // Getters and Setters
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getDuration() { return duration; }
+        public void setDuration(String duration) { this.duration = duration; }
+
+        public String getCredits() { return credits; }
+        public void setCredits(String credits) { this.credits = credits; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.ExamPilot.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+// One exam day from any of a user's timetables, flattened out of its folder for date-range listings
+public class ScheduledExamDay {
+    private String folderId;
+    private String folderName;
+    private String timetableId;
+    private String tableName;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+    private LocalDate date;
+    private String day;
+    private Timetable.ExamSession morning;
+    private Timetable.ExamSession afternoon;
+
+    // Constructors
+    public ScheduledExamDay() {}
+
+    // Getters and Setters
+    public String getFolderId() { return folderId; }
+    public void setFolderId(String folderId) { this.folderId = folderId; }
+
+    public String getFolderName() { return folderName; }
+    public void setFolderName(String folderName) { this.folderName = folderName; }
+
+    public String getTimetableId() { return timetableId; }
+    public void setTimetableId(String timetableId) { this.timetableId = timetableId; }
+
+    public String getTableName() { return tableName; }
+    public void setTableName(String tableName) { this.tableName = tableName; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public String getDay() { return day; }
+    public void setDay(String day) { this.day = day; }
+
+    public Timetable.ExamSession getMorning() { return morning; }
+    public void setMorning(Timetable.ExamSession morning) { this.morning = morning; }
+
+    public Timetable.ExamSession getAfternoon() { return afternoon; }
+    public void setAfternoon(Timetable.ExamSession afternoon) { this.afternoon = afternoon; }
+}
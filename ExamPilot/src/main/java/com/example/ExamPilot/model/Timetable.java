@@ -1,13 +1,44 @@
 package com.example.ExamPilot.model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+// One document per timetable, so editing one does not rewrite its folder and a folder has no size limit
+@Document(collection = "timetables")
+@CompoundIndexes({
+    // A folder's timetables in order, and the cascade delete with its folder
+    @CompoundIndex(name = "folder_position", def = "{'folderId': 1, 'position': 1, '_id': 1}"),
+    // Date-range scans over every exam day a user has scheduled
+    @CompoundIndex(name = "user_exam_date", def = "{'userId': 1, 'timetable.date': 1}")
+})
 public class Timetable {
+    @Id
     private String id;
+    // Owning folder (an ObjectId, so it joins against exam_folders._id), its user, and the order within
+    // the folder; maintained by the server and not part of the API
+    @JsonIgnore
+    @Field(targetType = FieldType.OBJECT_ID)
+    private String folderId;
+    @JsonIgnore
+    private String userId;
+    @JsonIgnore
+    private Long position;
     private String tableName;
-    private String startDate;
-    private String endDate;
+    @JsonDeserialize(using = ExamDates.LenientDeserializer.class)
+    private LocalDate startDate;
+    @JsonDeserialize(using = ExamDates.LenientDeserializer.class)
+    private LocalDate endDate;
     private Integer dayGap;
     private List<TimetableDay> timetable;
     private LocalDateTime createdAt;
@@ -23,14 +54,23 @@ public class Timetable {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    public String getFolderId() { return folderId; }
+    public void setFolderId(String folderId) { this.folderId = folderId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getPosition() { return position; }
+    public void setPosition(Long position) { this.position = position; }
+
     public String getTableName() { return tableName; }
     public void setTableName(String tableName) { this.tableName = tableName; }
 
-    public String getStartDate() { return startDate; }
-    public void setStartDate(String startDate) { this.startDate = startDate; }
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
 
-    public String getEndDate() { return endDate; }
-    public void setEndDate(String endDate) { this.endDate = endDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
 
     public Integer getDayGap() { return dayGap; }
     public void setDayGap(Integer dayGap) { this.dayGap = dayGap; }
@@ -46,14 +86,17 @@ public class Timetable {
 
     // Inner classes for timetable structure
     public static class TimetableDay {
-        private String date;
+        // Serialized as en-GB dd/MM/yyyy, which the frontend matches days against
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+        @JsonDeserialize(using = ExamDates.LenientDeserializer.class)
+        private LocalDate date;
         private String day;
         private ExamSession morning;
         private ExamSession afternoon;
 
         // Getters and Setters
-        public String getDate() { return date; }
-        public void setDate(String date) { this.date = date; }
+        public LocalDate getDate() { return date; }
+        public void setDate(LocalDate date) { this.date = date; }
 
         public String getDay() { return day; }
         public void setDay(String day) { this.day = day; }
@@ -66,6 +109,7 @@ public class Timetable {
     }
 
     public static class ExamSession {
+        private String id;
         private String name;
         private String duration;
         private String credits;
@@ -74,6 +118,9 @@ public class Timetable {
         private String code;
 
         // Getters and Setters
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
 
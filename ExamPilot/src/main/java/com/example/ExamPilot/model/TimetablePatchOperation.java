@@ -0,0 +1,28 @@
+package com.example.ExamPilot.model;
+
+// One JSON Patch (RFC 6902) operation against a timetable, e.g.
+// {"op": "replace", "path": "/timetable/3/afternoon/duration", "value": "2 hours"}
+public class TimetablePatchOperation {
+    private String op;
+    private String path;
+    private Object value;
+
+    // Constructors
+    public TimetablePatchOperation() {}
+
+    public TimetablePatchOperation(String op, String path, Object value) {
+        this.op = op;
+        this.path = path;
+        this.value = value;
+    }
+
+    // Getters and Setters
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+
+    public Object getValue() { return value; }
+    public void setValue(Object value) { this.value = value; }
+}
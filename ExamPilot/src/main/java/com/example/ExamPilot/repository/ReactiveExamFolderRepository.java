@@ -0,0 +1,12 @@
+package com.example.ExamPilot.repository;
+
+import com.example.ExamPilot.model.ExamFolder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ReactiveExamFolderRepository extends ReactiveMongoRepository<ExamFolder, String> {
+    Flux<ExamFolder> findByUserId(String userId, Sort sort);
+}
@@ -1,13 +1,20 @@
 package com.example.ExamPilot.repository;
 
 import com.example.ExamPilot.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    // Passwords stored before hashing: strings that are not a bcrypt hash
+    @Query("{ 'password': { $type: 'string', $not: /^\\$2[aby]?\\$\\d\\d\\$.{53}$/ } }")
+    List<User> findPlaintextPasswords(Pageable page);
 }
@@ -0,0 +1,11 @@
+package com.example.ExamPilot.service;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+// No Mongo permit became free within the bulkhead's wait limit; the request should be retried later
+public class BulkheadFullException extends TransientDataAccessResourceException {
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.User;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded LRU of recent successful logins. Only an HMAC of the credentials is kept,
+// under a random per-process key, so cached entries cannot be turned back into passwords.
+public class CredentialCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final byte[] salt = new byte[32];
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Token-path user lookups, counted apart so hits and misses only measure password checks
+    private final AtomicLong lookupHits = new AtomicLong();
+    private final AtomicLong lookupMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CredentialCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        new SecureRandom().nextBytes(salt);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CredentialCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns the cached user when these exact credentials were verified within the TTL
+    public User verify(String username, String password) {
+        byte[] digest = digest(username, password);
+        synchronized (entries) {
+            Entry entry = liveEntry(username);
+            if (entry != null && MessageDigest.isEqual(entry.digest, digest)) {
+                hits.incrementAndGet();
+                return entry.user;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public User lookup(String username) {
+        synchronized (entries) {
+            Entry entry = liveEntry(username);
+            if (entry != null) {
+                lookupHits.incrementAndGet();
+                return entry.user;
+            }
+        }
+        lookupMisses.incrementAndGet();
+        return null;
+    }
+
+    public void put(User user, String password) {
+        Entry entry = new Entry(digest(user.getUsername(), password), snapshot(user),
+                System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(user.getUsername(), entry);
+        }
+    }
+
+    public void invalidate(String username) {
+        synchronized (entries) {
+            entries.remove(username);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getLookupHits() { return lookupHits.get(); }
+    public long getLookupMisses() { return lookupMisses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    private Entry liveEntry(String username) {
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(username);
+            evictions.incrementAndGet();
+            return null;
+        }
+        return entry;
+    }
+
+    private byte[] digest(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+            return mac.doFinal((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    // Cached copy without the password hash
+    private User snapshot(User user) {
+        User copy = new User(user.getUsername(), null);
+        copy.setId(user.getId());
+        copy.setRole(user.getRole());
+        return copy;
+    }
+
+    private static class Entry {
+        final byte[] digest;
+        final User user;
+        final long expiresAt;
+
+        Entry(byte[] digest, User user, long expiresAt) {
+            this.digest = digest;
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ExamPilot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Where services used to only print swallowed database failures: still printed, and now counted as
+// exampilot.database.errors tagged with the same class/method names the @Timed service timers use
+@Component
+public class DatabaseErrors {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseErrors.class);
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public DatabaseErrors() {
+    }
+
+    public DatabaseErrors(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(Throwable e) {
+        StackWalker.StackFrame caller = WALKER.walk(frames -> frames.skip(1).findFirst()).orElseThrow();
+        String className = caller.getDeclaringClass().getSimpleName();
+        String method = methodName(caller.getMethodName());
+        log.warn("Database error in {}.{}: {}", className, method, e.getMessage());
+        Counter.builder("exampilot.database.errors")
+                .description("Database failures caught and handled inside a service method")
+                .tag("class", className)
+                .tag("method", method)
+                .tag("exception", e.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Reactive error handlers run in lambdas named like lambda$streamTimetables$2
+    private static String methodName(String name) {
+        if (name.startsWith("lambda$")) {
+            int end = name.indexOf('$', "lambda$".length());
+            return end > 0 ? name.substring("lambda$".length(), end) : name;
+        }
+        return name;
+    }
+}
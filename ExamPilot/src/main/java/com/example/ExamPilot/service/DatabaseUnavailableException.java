@@ -0,0 +1,12 @@
+package com.example.ExamPilot.service;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+// Mongo failed a read and there is nothing else to answer it from; answered with a 503 so the client
+// retries instead of taking a missing or partial result for the real one
+public class DatabaseUnavailableException extends TransientDataAccessResourceException {
+
+    public DatabaseUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
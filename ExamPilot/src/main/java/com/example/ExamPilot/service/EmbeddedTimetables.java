@@ -0,0 +1,28 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.Timetable;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+// The timetables array folders held before timetables got their own collection. ExamFolder no longer
+// maps it, so this view is how TimetableStore reads and migrates what is still embedded.
+@Document(collection = "exam_folders")
+class EmbeddedTimetables {
+    private String id;
+    private String userId;
+    private Long version;
+    private List<Timetable> timetables;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public List<Timetable> getTimetables() { return timetables; }
+    public void setTimetables(List<Timetable> timetables) { this.timetables = timetables; }
+}
@@ -0,0 +1,80 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.CalendarDay;
+import com.example.ExamPilot.model.CalendarExam;
+import com.example.ExamPilot.model.ScheduledExamDay;
+import com.example.ExamPilot.model.Timetable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Immutable date-sorted arrays of one user's exams; a range lookup is two binary searches
+public class ExamCalendarIndex {
+
+    private final long[] epochDays;
+    private final String[] weekdays;
+    private final CalendarExam[] exams;
+
+    // Expects days in date order, as the exam day aggregations return them
+    public ExamCalendarIndex(List<ScheduledExamDay> days) {
+        int count = 0;
+        for (ScheduledExamDay day : days) {
+            if (day.getDate() != null) {
+                count += (day.getMorning() != null ? 1 : 0) + (day.getAfternoon() != null ? 1 : 0);
+            }
+        }
+        epochDays = new long[count];
+        weekdays = new String[count];
+        exams = new CalendarExam[count];
+
+        int i = 0;
+        for (ScheduledExamDay day : days) {
+            if (day.getDate() == null) {
+                continue;
+            }
+            for (Timetable.ExamSession session : new Timetable.ExamSession[] { day.getMorning(), day.getAfternoon() }) {
+                if (session != null) {
+                    epochDays[i] = day.getDate().toEpochDay();
+                    weekdays[i] = day.getDay();
+                    exams[i] = new CalendarExam(day, session);
+                    i++;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return exams.length;
+    }
+
+    public List<CalendarDay> range(LocalDate from, LocalDate to) {
+        int start = firstOnOrAfter(from.toEpochDay());
+        int end = firstOnOrAfter(to.toEpochDay() + 1);
+
+        List<CalendarDay> result = new ArrayList<>();
+        CalendarDay current = null;
+        for (int i = start; i < end; i++) {
+            if (current == null || current.getDate().toEpochDay() != epochDays[i]) {
+                current = new CalendarDay(LocalDate.ofEpochDay(epochDays[i]), weekdays[i]);
+                result.add(current);
+            }
+            current.getExams().add(exams[i]);
+        }
+        return result;
+    }
+
+    private int firstOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = epochDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
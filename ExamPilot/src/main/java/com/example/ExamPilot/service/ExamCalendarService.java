@@ -0,0 +1,71 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.CalendarDay;
+import com.example.ExamPilot.model.ScheduledExamDay;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Day-grouped exam calendar. Cold users get a date-range aggregation per request; a user who asks
+// repeatedly gets their whole calendar loaded once into an ExamCalendarIndex held in ExamFolderCache,
+// which every folder write for that user invalidates.
+@Service
+@Timed(value = "exampilot.service", histogram = true)
+public class ExamCalendarService {
+
+    private static final int MAX_TRACKED_USERS = 10000;
+
+    @Autowired
+    private ExamFolderService examFolderService;
+
+    @Autowired
+    private ExamFolderCache examFolderCache;
+
+    @Value("${app.calendar.hot-threshold:3}")
+    private int hotThreshold;
+
+    @Value("${app.calendar.hot-window-seconds:300}")
+    private long hotWindowSeconds;
+
+    // userId -> {window start millis, requests in window}, least recently asked evicted first
+    private final LinkedHashMap<String, long[]> requestCounts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_TRACKED_USERS;
+        }
+    };
+
+    public List<CalendarDay> getCalendar(String userId, LocalDate from, LocalDate to) {
+        ExamCalendarIndex index = examFolderCache.getCalendar(userId);
+        if (index == null && isHot(userId)) {
+            long token = examFolderCache.token();
+            List<ScheduledExamDay> days = examFolderService.getAllExamDays(userId);
+            if (days != null) {
+                index = new ExamCalendarIndex(days);
+                examFolderCache.putCalendar(userId, index, token);
+            }
+        }
+        if (index != null) {
+            return index.range(from, to);
+        }
+        return new ExamCalendarIndex(examFolderService.getExamDaysInRange(userId, from, to)).range(from, to);
+    }
+
+    private boolean isHot(String userId) {
+        long now = System.currentTimeMillis();
+        synchronized (requestCounts) {
+            long[] count = requestCounts.get(userId);
+            if (count == null || now - count[0] > hotWindowSeconds * 1000) {
+                count = new long[] { now, 0 };
+                requestCounts.put(userId, count);
+            }
+            return ++count[1] >= hotThreshold;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process LRU of folder listings and exam calendars (by userId) and single folders (by folderId).
+// Bounded by total weight, roughly the number of timetable days held, rather than entry count. An entry
+// past its TTL is no longer served, but is kept for the stale window so a read Mongo cannot answer gets
+// the last copy this node saw; a write that invalidates it removes it at once.
+@Component
+public class ExamFolderCache {
+
+    private static final String USER_PREFIX = "user:";
+    private static final String FOLDER_PREFIX = "folder:";
+    private static final String CALENDAR_PREFIX = "calendar:";
+
+    @Value("${app.folder-cache.max-weight:200000}")
+    private long maxWeight;
+
+    // Bounds staleness from writes made by other nodes
+    @Value("${app.folder-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.folder-cache.stale-seconds:900}")
+    private long staleSeconds;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    // Bumped on every invalidation; a load that started before it must not be cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public long token() {
+        return generation.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<ExamFolder> getUserFolders(String userId) {
+        return (List<ExamFolder>) get(USER_PREFIX + userId);
+    }
+
+    public void putUserFolders(String userId, List<ExamFolder> folders, long token) {
+        long weight = 1;
+        for (ExamFolder folder : folders) {
+            weight += weightOf(folder);
+        }
+        put(USER_PREFIX + userId, Collections.unmodifiableList(new ArrayList<>(folders)), weight, token);
+    }
+
+    public ExamFolder getFolder(String folderId) {
+        return (ExamFolder) get(FOLDER_PREFIX + folderId);
+    }
+
+    // For outages only: the last listing or folder cached, even past its TTL
+    @SuppressWarnings("unchecked")
+    public List<ExamFolder> getLastKnownUserFolders(String userId) {
+        return (List<ExamFolder>) getLastKnown(USER_PREFIX + userId);
+    }
+
+    public ExamFolder getLastKnownFolder(String folderId) {
+        return (ExamFolder) getLastKnown(FOLDER_PREFIX + folderId);
+    }
+
+    public void putFolder(ExamFolder folder, long token) {
+        put(FOLDER_PREFIX + folder.getId(), folder, weightOf(folder), token);
+    }
+
+    public ExamCalendarIndex getCalendar(String userId) {
+        return (ExamCalendarIndex) get(CALENDAR_PREFIX + userId);
+    }
+
+    public void putCalendar(String userId, ExamCalendarIndex calendar, long token) {
+        put(CALENDAR_PREFIX + userId, calendar, 1 + calendar.size(), token);
+    }
+
+    public void invalidateUser(String userId) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            remove(USER_PREFIX + userId);
+            remove(CALENDAR_PREFIX + userId);
+        }
+    }
+
+    public void invalidateFolder(String folderId) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            remove(FOLDER_PREFIX + folderId);
+        }
+    }
+
+    // A folder write affects both the folder entry and its owner's listing
+    public void invalidate(ExamFolder folder) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            remove(FOLDER_PREFIX + folder.getId());
+            if (folder.getUserId() != null) {
+                remove(USER_PREFIX + folder.getUserId());
+                remove(CALENDAR_PREFIX + folder.getUserId());
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+            totalWeight = 0;
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public long getWeight() {
+        synchronized (entries) {
+            return totalWeight;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Object get(String key) {
+        synchronized (entries) {
+            Entry entry = unexpired(key, ttlSeconds);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private Object getLastKnown(String key) {
+        synchronized (entries) {
+            Entry entry = unexpired(key, Math.max(ttlSeconds, staleSeconds));
+            return entry != null ? entry.value : null;
+        }
+    }
+
+    // Entries past the stale window are dropped here; within it they are only skipped
+    private Entry unexpired(String key, long maxAgeSeconds) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long age = System.currentTimeMillis() - entry.cachedAt;
+        if (age > Math.max(ttlSeconds, staleSeconds) * 1000) {
+            remove(key);
+            return null;
+        }
+        return age <= maxAgeSeconds * 1000 ? entry : null;
+    }
+
+    private void put(String key, Object value, long weight, long token) {
+        if (weight > maxWeight) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation.get() != token) {
+                return;
+            }
+            remove(key);
+            entries.put(key, new Entry(value, weight, System.currentTimeMillis()));
+            totalWeight += weight;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalWeight > maxWeight && eldest.hasNext()) {
+                totalWeight -= eldest.next().getValue().weight;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    private long weightOf(ExamFolder folder) {
+        long weight = 1;
+        if (folder.getTimetables() != null) {
+            for (Timetable timetable : folder.getTimetables()) {
+                weight += 1 + (timetable.getTimetable() != null ? timetable.getTimetable().size() : 0);
+            }
+        }
+        return weight;
+    }
+
+    private static class Entry {
+        final Object value;
+        final long weight;
+        final long cachedAt;
+
+        Entry(Object value, long weight, long cachedAt) {
+            this.value = value;
+            this.weight = weight;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
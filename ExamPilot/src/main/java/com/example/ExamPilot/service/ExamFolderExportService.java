@@ -0,0 +1,195 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamDates;
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Streams a user's folders from a Mongo cursor and loads their timetables one folder at a time
+@Service
+@Timed(value = "exampilot.service", histogram = true)
+public class ExamFolderExportService {
+
+    private static final DateTimeFormatter SLOT_TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter ICS_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final int CURSOR_BATCH_SIZE = 50;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TimetableStore timetableStore;
+
+    public void writeCsv(String userId, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write("folder,timetable,date,day,session,time,code,subject,duration,credits\r\n");
+        try (Stream<ExamFolder> folders = streamFolders(userId)) {
+            Iterator<ExamFolder> iterator = folders.iterator();
+            while (iterator.hasNext()) {
+                ExamFolder folder = iterator.next();
+                for (Timetable timetable : timetableStore.findByFolderId(folder.getId())) {
+                    for (Timetable.TimetableDay day : nonNull(timetable.getTimetable())) {
+                        writeCsvRow(writer, folder, timetable, day, day.getMorning());
+                        writeCsvRow(writer, folder, timetable, day, day.getAfternoon());
+                    }
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    public void writeIcs(String userId, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        String stamp = LocalDateTime.now(ZoneOffset.UTC).format(ICS_DATE_TIME) + "Z";
+        writeIcsLine(writer, "BEGIN:VCALENDAR");
+        writeIcsLine(writer, "VERSION:2.0");
+        writeIcsLine(writer, "PRODID:-//ExamPilot//Exam Timetables//EN");
+        writeIcsLine(writer, "CALSCALE:GREGORIAN");
+        try (Stream<ExamFolder> folders = streamFolders(userId)) {
+            Iterator<ExamFolder> iterator = folders.iterator();
+            while (iterator.hasNext()) {
+                ExamFolder folder = iterator.next();
+                for (Timetable timetable : timetableStore.findByFolderId(folder.getId())) {
+                    for (Timetable.TimetableDay day : nonNull(timetable.getTimetable())) {
+                        writeEvent(writer, stamp, folder, timetable, day, day.getMorning(), "morning");
+                        writeEvent(writer, stamp, folder, timetable, day, day.getAfternoon(), "afternoon");
+                    }
+                }
+            }
+        }
+        writeIcsLine(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    private Stream<ExamFolder> streamFolders(String userId) {
+        if (mongoTemplate == null) {
+            return Stream.empty();
+        }
+        Query query = new Query(Criteria.where("userId").is(userId)).cursorBatchSize(CURSOR_BATCH_SIZE);
+        return mongoTemplate.stream(query, ExamFolder.class);
+    }
+
+    private void writeCsvRow(Writer writer, ExamFolder folder, Timetable timetable, Timetable.TimetableDay day,
+                             Timetable.ExamSession session) throws IOException {
+        if (session == null) {
+            return;
+        }
+        String[] values = {
+                folder.getFolderName(), timetable.getTableName(),
+                day.getDate() != null ? day.getDate().format(ExamDates.DAY_FORMAT) : null, day.getDay(),
+                session.getSession(), session.getTime(), session.getCode(), session.getName(),
+                session.getDuration(), session.getCredits()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private void writeEvent(Writer writer, String stamp, ExamFolder folder, Timetable timetable,
+                            Timetable.TimetableDay day, Timetable.ExamSession session, String slot) throws IOException {
+        LocalDate date = day.getDate();
+        if (session == null || date == null) {
+            return;
+        }
+
+        writeIcsLine(writer, "BEGIN:VEVENT");
+        writeIcsLine(writer, "UID:" + folder.getId() + "-" + timetable.getId() + "-" + date.format(ICS_DATE)
+                + "-" + slot + "@exampilot");
+        writeIcsLine(writer, "DTSTAMP:" + stamp);
+
+        LocalTime[] times = parseTimeSlot(session.getTime());
+        if (times != null) {
+            writeIcsLine(writer, "DTSTART:" + date.atTime(times[0]).format(ICS_DATE_TIME));
+            writeIcsLine(writer, "DTEND:" + date.atTime(times[1]).format(ICS_DATE_TIME));
+        } else {
+            writeIcsLine(writer, "DTSTART;VALUE=DATE:" + date.format(ICS_DATE));
+        }
+
+        String summary = session.getCode() != null ? session.getCode() + " " + session.getName() : session.getName();
+        writeIcsLine(writer, "SUMMARY:" + icsText(summary));
+        writeIcsLine(writer, "DESCRIPTION:" + icsText(folder.getFolderName() + " / " + timetable.getTableName()));
+        writeIcsLine(writer, "END:VEVENT");
+    }
+
+    // "9:00 AM - 12:00 PM" -> [09:00, 12:00]
+    private LocalTime[] parseTimeSlot(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split("-");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            return new LocalTime[] {
+                    LocalTime.parse(parts[0].trim().toUpperCase(Locale.US), SLOT_TIME_FORMAT),
+                    LocalTime.parse(parts[1].trim().toUpperCase(Locale.US), SLOT_TIME_FORMAT)
+            };
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private String icsText(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,")
+                .replace("\r\n", "\\n").replace("\n", "\\n");
+    }
+
+    // RFC 5545 lines are folded at 75 characters; continuation lines start with a space
+    private void writeIcsLine(Writer writer, String line) throws IOException {
+        int start = 0;
+        int width = 75;
+        while (line.length() - start > width) {
+            writer.write(line, start, width);
+            writer.write("\r\n ");
+            start += width;
+            width = 74;
+        }
+        writer.write(line, start, line.length() - start);
+        writer.write("\r\n");
+    }
+
+    private <T> Iterable<T> nonNull(Iterable<T> values) {
+        return values != null ? values : Collections.emptyList();
+    }
+}
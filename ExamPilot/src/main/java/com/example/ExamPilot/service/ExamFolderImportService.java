@@ -0,0 +1,247 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.FolderChange;
+import com.example.ExamPilot.model.Timetable;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.annotation.Timed;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Creates one folder per imported timetable, like POST /create-with-timetable, but reads the body
+// item by item and inserts in unordered batches so heap use does not grow with the payload.
+@Service
+@Timed(value = "exampilot.service", histogram = true)
+public class ExamFolderImportService {
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExamFolderCache examFolderCache;
+
+    @Autowired
+    private TimetableIdGenerator timetableIdGenerator;
+
+    @Autowired
+    private TimetableStore timetableStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DatabaseErrors databaseErrors;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    // Accepts a JSON array or newline-delimited JSON objects; writes one NDJSON result line per item
+    public void importTimetables(String userId, InputStream input, OutputStream output) throws IOException {
+        if (mongoTemplate == null) {
+            writeResult(output, error(-1, "Database not available"));
+            return;
+        }
+
+        Set<String> takenNames = existingFolderNames(userId);
+        List<ExamFolder> batch = new ArrayList<>();
+        List<Integer> batchIndexes = new ArrayList<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+
+            int index = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    writeResult(output, error(index, "Expected a timetable object"));
+                    break;
+                }
+
+                // Only the current item is materialised; a bad item does not derail the parser
+                JsonNode node = objectMapper.readTree(parser);
+                String problem;
+                Timetable timetable = null;
+                try {
+                    timetable = objectMapper.treeToValue(node, Timetable.class);
+                    problem = validate(timetable);
+                } catch (JsonProcessingException e) {
+                    problem = "Invalid timetable: " + e.getOriginalMessage();
+                }
+
+                if (problem != null) {
+                    writeResult(output, error(index, problem));
+                } else {
+                    batch.add(toFolder(userId, timetable, takenNames));
+                    batchIndexes.add(index);
+                    if (batch.size() >= batchSize) {
+                        flush(batch, batchIndexes, output);
+                    }
+                }
+
+                index++;
+                token = parser.nextToken();
+            }
+        } catch (IOException e) {
+            flush(batch, batchIndexes, output);
+            writeResult(output, error(-1, "Malformed request body: " + e.getMessage()));
+            return;
+        }
+        flush(batch, batchIndexes, output);
+    }
+
+    private String validate(Timetable timetable) {
+        if (timetable.getTableName() == null || timetable.getTableName().trim().isEmpty()) {
+            return "tableName is required";
+        }
+        if (timetable.getTimetable() == null || timetable.getTimetable().isEmpty()) {
+            return "timetable must contain at least one day";
+        }
+        for (Timetable.TimetableDay day : timetable.getTimetable()) {
+            if (day == null || day.getDate() == null) {
+                return "every timetable day needs a date";
+            }
+            if (day.getMorning() == null && day.getAfternoon() == null) {
+                return "day " + day.getDate() + " has no exam session";
+            }
+        }
+        return null;
+    }
+
+    private Set<String> existingFolderNames(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId));
+        query.fields().include("folderName");
+        Set<String> names = new HashSet<>();
+        for (ExamFolder folder : mongoTemplate.find(query, ExamFolder.class)) {
+            names.add(folder.getFolderName());
+        }
+        return names;
+    }
+
+    private ExamFolder toFolder(String userId, Timetable timetable, Set<String> takenNames) {
+        String folderName = timetable.getTableName().trim();
+        if (!takenNames.add(folderName)) {
+            int counter = 1;
+            while (!takenNames.add(folderName + " (" + counter + ")")) {
+                counter++;
+            }
+            folderName = folderName + " (" + counter + ")";
+        }
+
+        timetableIdGenerator.assignIds(timetable);
+        timetable.setCreatedAt(LocalDateTime.now());
+        timetable.setUpdatedAt(LocalDateTime.now());
+
+        ExamFolder folder = new ExamFolder(userId, folderName, "Folder for " + timetable.getTableName());
+        folder.setId(new ObjectId().toHexString());
+        folder.setVersion(0L);
+        folder.addTimetable(timetable);
+        return folder;
+    }
+
+    private void flush(List<ExamFolder> batch, List<Integer> batchIndexes, OutputStream output) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, String> failures = new HashMap<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExamFolder.class)
+                    .insert(batch)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError writeError : e.getErrors()) {
+                failures.put(writeError.getIndex(), writeError.getMessage());
+            }
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            for (int i = 0; i < batch.size(); i++) {
+                failures.put(i, "Database error: " + e.getMessage());
+            }
+        }
+
+        // The timetables go to their own collection once their folders exist; if that fails the
+        // folders are removed again so no item is reported created without its timetable
+        List<ExamFolder> inserted = new ArrayList<>();
+        Map<String, List<Timetable>> timetables = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failures.containsKey(i)) {
+                inserted.add(batch.get(i));
+                timetables.put(batch.get(i).getId(), batch.get(i).getTimetables());
+            }
+        }
+        try {
+            timetableStore.insertAll(inserted, timetables);
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            List<String> insertedIds = new ArrayList<>(timetables.keySet());
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(insertedIds)), ExamFolder.class);
+            mongoTemplate.remove(new Query(Criteria.where("folderId").in(insertedIds)), Timetable.class);
+            for (int i = 0; i < batch.size(); i++) {
+                failures.putIfAbsent(i, "Database error: " + e.getMessage());
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures.containsKey(i)) {
+                writeResult(output, error(batchIndexes.get(i), failures.get(i)));
+            } else {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("index", batchIndexes.get(i));
+                result.put("status", "created");
+                result.put("folderId", batch.get(i).getId());
+                result.put("folderName", batch.get(i).getFolderName());
+                writeResult(output, result);
+                eventPublisher.publishEvent(new FolderChange(batch.get(i).getUserId(), batch.get(i).getId(),
+                        batch.get(i).getTimetables().get(0).getId(), FolderChange.Operation.FOLDER_CREATED, 0L));
+            }
+        }
+        examFolderCache.invalidateUser(batch.get(0).getUserId());
+        output.flush();
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private Map<String, Object> error(int index, String message) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("status", "error");
+        result.put("error", message);
+        return result;
+    }
+
+    private void writeResult(OutputStream output, Map<String, Object> result) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(result));
+        output.write("\n".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,240 +1,1061 @@
 package com.example.ExamPilot.service;
 
 import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.ExamFolderSummary;
+import com.example.ExamPilot.model.FolderChange;
+import com.example.ExamPilot.model.ScheduledExamDay;
 import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.TimetablePatchOperation;
 import com.example.ExamPilot.repository.ExamFolderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 @Service
+@Timed(value = "exampilot.service", histogram = true)
 public class ExamFolderService {
 
+    private static final Logger log = LoggerFactory.getLogger(ExamFolderService.class);
+
+    private static final int MAX_NAME_ATTEMPTS = 5;
+
     @Autowired(required = false)
     private ExamFolderRepository examFolderRepository;
 
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ExamFolderCache examFolderCache;
+
+    @Autowired
+    private TimetableIdGenerator timetableIdGenerator;
+
+    @Autowired
+    private MongoBulkhead mongoBulkhead;
+
+    @Autowired
+    private DatabaseErrors databaseErrors;
+
+    @Autowired
+    private TimetableStore timetableStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Answers while Mongo is unreachable, and is the only store with app.store.mode=local
+    @Autowired
+    private LocalFolderStore localFolderStore;
+
+    @Value("${app.write-coalescing.enabled:false}")
+    private boolean coalesceWrites;
+
+    @Value("${app.write-coalescing.window-ms:250}")
+    private long coalesceWindowMillis;
+
+    private TimetableWriteCoalescer timetableWrites;
+
+    @PostConstruct
+    public void init() {
+        if (coalesceWrites) {
+            timetableWrites = new TimetableWriteCoalescer(coalesceWindowMillis, this::loadFolder, this::storeTimetable);
+        }
+    }
+
+    // Held edits are written before the Mongo template goes away
+    @PreDestroy
+    public void flushTimetableWrites() {
+        if (timetableWrites != null) {
+            timetableWrites.close();
+        }
+    }
+
+    public TimetableWriteCoalescer getTimetableWrites() {
+        return timetableWrites;
+    }
+
     public List<ExamFolder> getExamFoldersByUserId(String userId) {
+        flushUser(userId);
         if (examFolderRepository == null) {
-            return new ArrayList<>();
+            return localFolderStore.findByUserId(userId);
+        }
+        List<ExamFolder> cached = examFolderCache.getUserFolders(userId);
+        if (cached != null) {
+            return cached;
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            long token = examFolderCache.token();
+            List<ExamFolder> folders = examFolderRepository.findByUserId(userId);
+            timetableStore.attach(folders);
+            folders = localFolderStore.overlay(userId, folders);
+            examFolderCache.putUserFolders(userId, folders, token);
+            return folders;
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            return lastKnownFolders(userId, e);
+        }
+    }
+
+    // Newest first, keyset-paginated on (updatedAt, id); timetables are only counted
+    public List<ExamFolderSummary> getExamFolderSummaries(String userId, String cursor, int limit) {
+        String[] position = cursor != null && !cursor.isEmpty() ? decodeCursor(cursor) : null;
+        flushUser(userId);
+        if (mongoTemplate == null) {
+            return localSummaries(userId, position, limit);
+        }
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (position != null) {
+            LocalDateTime updatedAt = LocalDateTime.parse(position[0]);
+            criteria.orOperator(
+                    Criteria.where("updatedAt").lt(updatedAt),
+                    new Criteria().andOperator(
+                            Criteria.where("updatedAt").is(updatedAt),
+                            Criteria.where("_id").lt(position[1])));
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(criteria),
+                    Aggregation.sort(Sort.Direction.DESC, "updatedAt", "_id"),
+                    // Pending local changes are not in Mongo yet and may replace some of these rows
+                    Aggregation.limit(limit + localFolderStore.pendingCount(userId)),
+                    Aggregation.project("folderName", "description", "updatedAt", "version"));
+            List<ExamFolderSummary> summaries =
+                    mongoTemplate.aggregate(aggregation, ExamFolder.class, ExamFolderSummary.class).getMappedResults();
+            List<String> folderIds = new ArrayList<>();
+            for (ExamFolderSummary summary : summaries) {
+                folderIds.add(summary.getId());
+            }
+            Map<String, Integer> counts = timetableStore.countByFolderIds(folderIds);
+            for (ExamFolderSummary summary : summaries) {
+                summary.setTimetableCount(counts.getOrDefault(summary.getId(), 0));
+            }
+            return position != null
+                    ? localFolderStore.overlaySummaries(userId, summaries, LocalDateTime.parse(position[0]), position[1], limit)
+                    : localFolderStore.overlaySummaries(userId, summaries, null, null, limit);
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            // The local store holds only the writes it is waiting to replay, not the whole listing
+            throw new DatabaseUnavailableException("Exam folders are unavailable, try again shortly", e);
         }
+    }
+
+    private List<ExamFolderSummary> localSummaries(String userId, String[] position, int limit) {
+        return position != null
+                ? localFolderStore.summaries(userId, LocalDateTime.parse(position[0]), position[1], limit)
+                : localFolderStore.summaries(userId, null, null, limit);
+    }
+
+    // Exam days between from and to inclusive, across all of the user's timetables, in date order
+    public List<ScheduledExamDay> getExamDaysInRange(String userId, LocalDate from, LocalDate to) {
+        flushUser(userId);
+        if (mongoTemplate == null) {
+            return localFolderStore.examDays(userId, from, to);
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            // The $elemMatch keeps both bounds on one multikey index scan of user_exam_date
+            List<ScheduledExamDay> days = examDays(
+                    Criteria.where("userId").is(userId)
+                            .and("timetable").elemMatch(Criteria.where("date").gte(from).lte(to)),
+                    Criteria.where("timetable.date").gte(from).lte(to));
+            return localFolderStore.overlayExamDays(userId, days, from, to);
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            throw new DatabaseUnavailableException("Exam days are unavailable, try again shortly", e);
+        }
+    }
+
+    // Every dated exam day of the user; null on a database error so callers do not cache an empty calendar
+    public List<ScheduledExamDay> getAllExamDays(String userId) {
+        flushUser(userId);
+        if (mongoTemplate == null) {
+            return localFolderStore.examDays(userId, null, null);
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            List<ScheduledExamDay> days = examDays(Criteria.where("userId").is(userId),
+                    Criteria.where("timetable.date").type(JsonSchemaObject.Type.DATE));
+            return localFolderStore.overlayExamDays(userId, days, null, null);
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            return null;
+        }
+    }
+
+    // Matching timetables joined to their folder's name, then $unwind the days, keep the matching ones,
+    // and project only the exam sessions
+    private List<ScheduledExamDay> examDays(Criteria timetableCriteria, Criteria dayCriteria) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(timetableCriteria),
+                Aggregation.lookup().from("exam_folders").localField("folderId").foreignField("_id")
+                        .pipeline(Aggregation.project("folderName")).as("folder"),
+                Aggregation.unwind("folder"),
+                Aggregation.unwind("timetable"),
+                Aggregation.match(dayCriteria),
+                Aggregation.project("folderId", "tableName")
+                        .and("folder.folderName").as("folderName")
+                        .and("_id").as("timetableId")
+                        .and("timetable.date").as("date")
+                        .and("timetable.day").as("day")
+                        .and("timetable.morning").as("morning")
+                        .and("timetable.afternoon").as("afternoon"),
+                Aggregation.sort(Sort.Direction.ASC, "date", "tableName"));
+        return mongoTemplate.aggregate(aggregation, Timetable.class, ScheduledExamDay.class).getMappedResults();
+    }
+
+    public String encodeCursor(ExamFolderSummary summary) {
+        String position = summary.getUpdatedAt() + "|" + summary.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
         try {
-            return examFolderRepository.findByUserId(userId);
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|", 2);
+            if (parts.length == 2) {
+                LocalDateTime.parse(parts[0]);
+                return parts;
+            }
+        } catch (Exception e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    public ExamFolder getExamFolderById(String folderId) {
+        ExamFolder projected = timetableWrites != null ? timetableWrites.projection(folderId) : null;
+        return projected != null ? projected : loadFolder(folderId);
+    }
+
+    private ExamFolder loadFolder(String folderId) {
+        if (examFolderRepository == null || localFolderStore.isPending(folderId)) {
+            return localFolderStore.findById(folderId);
+        }
+        ExamFolder cached = examFolderCache.getFolder(folderId);
+        if (cached != null) {
+            return cached;
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            long token = examFolderCache.token();
+            ExamFolder folder = examFolderRepository.findById(folderId).orElse(null);
+            if (folder != null) {
+                timetableStore.attach(List.of(folder));
+                examFolderCache.putFolder(folder, token);
+            }
+            return folder;
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
-            return new ArrayList<>();
+            databaseErrors.record(e);
+            return lastKnownFolder(folderId, e);
         }
     }
 
+    // Changes whenever a folder of the user is created, edited or deleted; computed without loading folders
+    public String getFolderListingETag(String userId) {
+        flushUser(userId);
+        if (mongoTemplate == null || localFolderStore.hasPending(userId)) {
+            return null;
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("userId").is(userId)),
+                    Aggregation.group()
+                            .count().as("count")
+                            .max("updatedAt").as("lastModified")
+                            .sum("version").as("versionSum"));
+            Document stamp = mongoTemplate.aggregate(aggregation, ExamFolder.class, Document.class)
+                    .getUniqueMappedResult();
+            if (stamp == null) {
+                return "\"0-0-0\"";
+            }
+            Date lastModified = stamp.getDate("lastModified");
+            Number versionSum = (Number) stamp.get("versionSum");
+            return "\"" + ((Number) stamp.get("count")).longValue() + "-"
+                    + (lastModified != null ? lastModified.getTime() : 0) + "-"
+                    + (versionSum != null ? versionSum.longValue() : 0) + "\"";
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            return null;
+        }
+    }
+
+    // Only id, version and updatedAt, enough to answer a conditional GET
+    public ExamFolder getExamFolderStamp(String folderId) {
+        ExamFolder projected = timetableWrites != null ? timetableWrites.projection(folderId) : null;
+        if (projected != null) {
+            return projected;
+        }
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localFolderStore.findById(folderId);
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            Query query = new Query(Criteria.where("_id").is(folderId));
+            query.fields().include("version", "updatedAt");
+            return mongoTemplate.findOne(query, ExamFolder.class);
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            return lastKnownFolder(folderId, e);
+        }
+    }
+
+    public Timetable getTimetableInFolder(String folderId, String timetableId) {
+        ExamFolder projected = timetableWrites != null ? timetableWrites.projection(folderId) : null;
+        if (projected != null) {
+            return findTimetable(projected, timetableId);
+        }
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localTimetable(folderId, timetableId);
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            return timetableStore.findOne(folderId, timetableId);
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            return findTimetable(lastKnownFolder(folderId, e), timetableId);
+        }
+    }
+
+    private Timetable localTimetable(String folderId, String timetableId) {
+        ExamFolder folder = localFolderStore.findById(folderId);
+        return folder != null ? findTimetable(folder, timetableId) : null;
+    }
+
+    private Timetable findTimetable(ExamFolder folder, String timetableId) {
+        for (Timetable timetable : folder.getTimetables()) {
+            if (timetable.getId() != null && timetable.getId().equals(timetableId)) {
+                return timetable;
+            }
+        }
+        return null;
+    }
+
     public ExamFolder createExamFolder(ExamFolder examFolder) {
         if (examFolderRepository == null) {
-            return null;
+            return localCreate(examFolder, null);
         }
-        try {
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
             examFolder.setCreatedAt(LocalDateTime.now());
             examFolder.setUpdatedAt(LocalDateTime.now());
+            examFolder.setVersion(0L);
             if (examFolder.getTimetables() == null) {
                 examFolder.setTimetables(new ArrayList<>());
             }
-            return examFolderRepository.save(examFolder);
+            ExamFolder saved = examFolderRepository.save(examFolder);
+            insertTimetables(saved);
+            examFolderCache.invalidateUser(saved.getUserId());
+            publish(saved, FolderChange.Operation.FOLDER_CREATED, null);
+            return saved;
+        } catch (DuplicateKeyException | TimetableIdInUseException | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
-            return null;
+            databaseErrors.record(e);
+            return LocalFolderStore.isOutage(e) ? localCreate(examFolder, null) : null;
         }
     }
 
     public ExamFolder updateExamFolder(String folderId, ExamFolder examFolder) {
-        if (examFolderRepository == null) {
-            return null;
+        flushFolder(folderId);
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localUpdateFolder(folderId, examFolder);
         }
-        try {
-            Optional<ExamFolder> existingFolder = examFolderRepository.findById(folderId);
-            if (existingFolder.isPresent()) {
-                ExamFolder folder = existingFolder.get();
-                folder.setFolderName(examFolder.getFolderName());
-                folder.setDescription(examFolder.getDescription());
-                folder.setTimetables(examFolder.getTimetables());
-                folder.setUpdatedAt(LocalDateTime.now());
-                return examFolderRepository.save(folder);
-            }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            Update update = new Update()
+                    .set("folderName", examFolder.getFolderName())
+                    .set("description", examFolder.getDescription())
+                    .set("updatedAt", LocalDateTime.now())
+                    .inc("version", 1);
+            ExamFolder updated = modifyFolder(folderById(folderId, examFolder.getVersion()), update, folderId,
+                    examFolder.getVersion(), folder -> {
+                        timetableStore.replaceAll(folder, examFolder.getTimetables());
+                        return true;
+                    });
+            publish(updated, FolderChange.Operation.FOLDER_UPDATED, null);
+            return withTimetables(updated);
+        } catch (OptimisticLockingFailureException | DuplicateKeyException | TimetableIdInUseException
+                | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
+            if (isOutageFor(e, folderId)) {
+                return localUpdateFolder(folderId, examFolder);
+            }
         }
         return null;
     }
 
+    private ExamFolder localUpdateFolder(String folderId, ExamFolder examFolder) {
+        return localModify(folderId, examFolder.getVersion(), FolderChange.Operation.FOLDER_UPDATED, null, folder -> {
+            folder.setFolderName(examFolder.getFolderName());
+            folder.setDescription(examFolder.getDescription());
+            List<Timetable> timetables = examFolder.getTimetables() != null ? examFolder.getTimetables() : List.of();
+            for (Timetable timetable : timetables) {
+                timetableIdGenerator.assignIds(timetable);
+            }
+            folder.setTimetables(new ArrayList<>(timetables));
+            return true;
+        });
+    }
+
     public boolean deleteExamFolder(String folderId) {
-        if (examFolderRepository == null) {
-            return false;
+        flushFolder(folderId);
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localDelete(folderId);
         }
-        try {
-            if (examFolderRepository.existsById(folderId)) {
-                examFolderRepository.deleteById(folderId);
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            // Delete and learn the owner in one round trip, for cache invalidation
+            Query query = new Query(Criteria.where("_id").is(folderId));
+            query.fields().include("userId");
+            ExamFolder removed = mongoTemplate.findAndRemove(query, ExamFolder.class);
+            if (removed != null) {
+                // The folder is gone first, so a failure here leaves only unreachable timetables behind
+                timetableStore.deleteByFolderId(folderId);
+                examFolderCache.invalidate(removed);
+                publish(removed, FolderChange.Operation.FOLDER_DELETED, null);
                 return true;
             }
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
+            if (isOutageFor(e, folderId)) {
+                return localDelete(folderId);
+            }
         }
         return false;
     }
 
+    private boolean localDelete(String folderId) {
+        ExamFolder removed = localFolderStore.delete(folderId, examFolderCache.getFolder(folderId));
+        if (removed == null) {
+            return false;
+        }
+        examFolderCache.invalidate(removed);
+        publish(removed, FolderChange.Operation.FOLDER_DELETED, null);
+        return true;
+    }
+
     public ExamFolder addTimetableToFolder(String folderId, Timetable timetable) {
-        if (examFolderRepository == null) {
-            return null;
+        return addTimetableToFolder(folderId, timetable, null);
+    }
+
+    public ExamFolder addTimetableToFolder(String folderId, Timetable timetable, Long expectedVersion) {
+        flushFolder(folderId);
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localAddTimetable(folderId, timetable, expectedVersion);
         }
-        try {
-            Optional<ExamFolder> existingFolder = examFolderRepository.findById(folderId);
-            if (existingFolder.isPresent()) {
-                ExamFolder folder = existingFolder.get();
-                
-                // Generate unique ID for timetable if not present
-                if (timetable.getId() == null || timetable.getId().isEmpty()) {
-                    timetable.setId(String.valueOf(System.currentTimeMillis()));
-                }
-                
-                timetable.setCreatedAt(LocalDateTime.now());
-                timetable.setUpdatedAt(LocalDateTime.now());
-                
-                if (folder.getTimetables() == null) {
-                    folder.setTimetables(new ArrayList<>());
-                }
-                
-                folder.getTimetables().add(timetable);
-                folder.setUpdatedAt(LocalDateTime.now());
-                
-                return examFolderRepository.save(folder);
-            }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            // Generate unique IDs for the timetable and its sessions if not present
+            timetableIdGenerator.assignIds(timetable);
+
+            timetable.setCreatedAt(LocalDateTime.now());
+            timetable.setUpdatedAt(LocalDateTime.now());
+
+            Update update = new Update()
+                    .set("updatedAt", LocalDateTime.now())
+                    .inc("version", 1);
+            ExamFolder updated = modifyFolder(folderById(folderId, expectedVersion), update, folderId, expectedVersion,
+                    folder -> {
+                        timetableStore.insert(folder, List.of(timetable));
+                        return true;
+                    });
+            publish(updated, FolderChange.Operation.TIMETABLE_ADDED, timetable.getId());
+            return withTimetables(updated);
+        } catch (OptimisticLockingFailureException | TimetableIdInUseException | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
+            if (isOutageFor(e, folderId)) {
+                return localAddTimetable(folderId, timetable, expectedVersion);
+            }
         }
         return null;
     }
 
+    private ExamFolder localAddTimetable(String folderId, Timetable timetable, Long expectedVersion) {
+        timetableIdGenerator.assignIds(timetable);
+        timetable.setCreatedAt(LocalDateTime.now());
+        timetable.setUpdatedAt(LocalDateTime.now());
+        return localModify(folderId, expectedVersion, FolderChange.Operation.TIMETABLE_ADDED, timetable.getId(),
+                folder -> {
+                    folder.addTimetable(timetable);
+                    return true;
+                });
+    }
+
     // New method to create a folder for each timetable based on the timetable name
     public ExamFolder createFolderForTimetable(String userId, Timetable timetable) {
         if (examFolderRepository == null) {
-            return null;
+            return localCreateForTimetable(userId, timetable);
         }
-        try {
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
             // Use the timetable name as the folder name
-            String folderName = timetable.getTableName();
-            
-            // Check if a folder with this name already exists for this user
-            ExamFolder existingFolder = getExamFolderByUserAndName(userId, folderName);
-            
-            if (existingFolder != null) {
-                // If folder exists, create a new unique folder name
-                folderName = generateUniqueFolderName(userId, folderName);
-            }
-            
-            // Create new folder
-            ExamFolder newFolder = new ExamFolder(userId, folderName, "Folder for " + timetable.getTableName());
-            
-            // Generate unique ID for timetable if not present
-            if (timetable.getId() == null || timetable.getId().isEmpty()) {
-                timetable.setId(String.valueOf(System.currentTimeMillis()));
-            }
-            
+            String baseName = timetable.getTableName() != null ? timetable.getTableName().trim() : "Untitled";
+
+            // Generate unique IDs for the timetable and its sessions if not present
+            timetableIdGenerator.assignIds(timetable);
+
             timetable.setCreatedAt(LocalDateTime.now());
             timetable.setUpdatedAt(LocalDateTime.now());
-            
-            // Add the timetable to the new folder
-            newFolder.addTimetable(timetable);
-            
-            // Save and return the new folder
-            return examFolderRepository.save(newFolder);
-        } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
-            return null;
+
+            // The unique (userId, folderName) index rejects a name taken concurrently; allocate again
+            DuplicateKeyException clash = null;
+            for (int attempt = 0; attempt < MAX_NAME_ATTEMPTS; attempt++) {
+                ExamFolder newFolder = new ExamFolder(userId, allocateFolderName(userId, baseName),
+                        "Folder for " + timetable.getTableName());
+                newFolder.setVersion(0L);
+                newFolder.addTimetable(timetable);
+                ExamFolder saved;
+                try {
+                    saved = examFolderRepository.insert(newFolder);
+                } catch (DuplicateKeyException e) {
+                    examFolderCache.invalidateUser(userId);
+                    clash = e;
+                    continue;
+                }
+                insertTimetables(saved);
+                examFolderCache.invalidateUser(userId);
+                publish(saved, FolderChange.Operation.FOLDER_CREATED, timetable.getId());
+                return saved;
+            }
+            log.warn("Could not allocate a unique folder name for '{}' after {} attempts", baseName, MAX_NAME_ATTEMPTS);
+            throw clash;
+        } catch (DuplicateKeyException | TimetableIdInUseException | BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            return LocalFolderStore.isOutage(e) ? localCreateForTimetable(userId, timetable) : null;
         }
     }
 
-    // Helper method to generate unique folder names
-    private String generateUniqueFolderName(String userId, String baseName) {
-        if (examFolderRepository == null) {
-            return baseName + " (1)";
+    // Names are allocated among the folders held locally; LocalFolderSync renames on a clash in Mongo
+    private ExamFolder localCreateForTimetable(String userId, Timetable timetable) {
+        String baseName = timetable.getTableName() != null ? timetable.getTableName().trim() : "Untitled";
+        List<String> taken = new ArrayList<>();
+        for (ExamFolder folder : localFolderStore.findByUserId(userId)) {
+            taken.add(folder.getFolderName());
         }
-        try {
-            int counter = 1;
-            String uniqueName;
-            
-            do {
-                uniqueName = baseName + " (" + counter + ")";
-                counter++;
-            } while (getExamFolderByUserAndName(userId, uniqueName) != null);
-            
-            return uniqueName;
-        } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
-            return baseName + " (1)";
+        String folderName = baseName;
+        for (int suffix = 1; taken.contains(folderName); suffix++) {
+            folderName = baseName + " (" + suffix + ")";
         }
+        timetableIdGenerator.assignIds(timetable);
+        timetable.setCreatedAt(LocalDateTime.now());
+        timetable.setUpdatedAt(LocalDateTime.now());
+        ExamFolder newFolder = new ExamFolder(userId, folderName, "Folder for " + timetable.getTableName());
+        newFolder.addTimetable(timetable);
+        return localCreate(newFolder, timetable.getId());
+    }
+
+    // One anchored-prefix query for "baseName" and "baseName (n)"; the next free suffix is max(n) + 1
+    private String allocateFolderName(String userId, String baseName) {
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("folderName").regex("^" + escapeRegex(baseName) + "( \\(\\d+\\))?$"));
+        query.fields().include("folderName");
+
+        int highest = -1;
+        for (ExamFolder folder : mongoTemplate.find(query, ExamFolder.class)) {
+            String name = folder.getFolderName();
+            if (name.length() == baseName.length()) {
+                highest = Math.max(highest, 0);
+            } else {
+                String suffix = name.substring(baseName.length() + 2, name.length() - 1);
+                try {
+                    highest = Math.max(highest, Integer.parseInt(suffix));
+                } catch (NumberFormatException e) {
+                    // more digits than an int holds; cannot be one of ours
+                }
+            }
+        }
+        return highest < 0 ? baseName : baseName + " (" + (highest + 1) + ")";
+    }
+
+    private String escapeRegex(String value) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
     }
 
     public ExamFolder updateTimetableInFolder(String folderId, String timetableId, Timetable updatedTimetable) {
-        if (examFolderRepository == null) {
-            return null;
+        return updateTimetableInFolder(folderId, timetableId, updatedTimetable, null);
+    }
+
+    // With write coalescing on, the edit is held briefly and merged with later edits of the same timetable;
+    // the folder returned is as it will be once written
+    public ExamFolder updateTimetableInFolder(String folderId, String timetableId, Timetable updatedTimetable,
+                                              Long expectedVersion) {
+        if (timetableWrites != null && mongoTemplate != null && !localFolderStore.isPending(folderId)) {
+            updatedTimetable.setId(timetableId);
+            timetableIdGenerator.assignIds(updatedTimetable);
+            return timetableWrites.submit(folderId, timetableId, updatedTimetable, expectedVersion);
         }
+        return writeTimetable(folderId, timetableId, updatedTimetable, expectedVersion);
+    }
+
+    private ExamFolder writeTimetable(String folderId, String timetableId, Timetable updatedTimetable,
+                                      Long expectedVersion) {
+        updatedTimetable.setUpdatedAt(LocalDateTime.now());
         try {
-            Optional<ExamFolder> existingFolder = examFolderRepository.findById(folderId);
-            if (existingFolder.isPresent()) {
-                ExamFolder folder = existingFolder.get();
-                
-                if (folder.getTimetables() != null) {
-                    for (int i = 0; i < folder.getTimetables().size(); i++) {
-                        if (folder.getTimetables().get(i).getId().equals(timetableId)) {
-                            updatedTimetable.setId(timetableId);
-                            updatedTimetable.setUpdatedAt(LocalDateTime.now());
-                            // Preserve created date
-                            if (updatedTimetable.getCreatedAt() == null) {
-                                updatedTimetable.setCreatedAt(folder.getTimetables().get(i).getCreatedAt());
-                            }
-                            folder.getTimetables().set(i, updatedTimetable);
-                            folder.setUpdatedAt(LocalDateTime.now());
-                            return examFolderRepository.save(folder);
-                        }
+            return storeTimetable(folderId, timetableId, updatedTimetable, expectedVersion, null);
+        } catch (OptimisticLockingFailureException | BulkheadFullException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Throws when the write could not be made instead of answering null, so a coalesced edit is kept and
+    // retried rather than taken for a deleted timetable. The coalescer's writeId makes its retries idempotent.
+    private ExamFolder storeTimetable(String folderId, String timetableId, Timetable updatedTimetable,
+                                      Long expectedVersion, String writeId) {
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localUpdateTimetable(folderId, timetableId, updatedTimetable, expectedVersion);
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            // The path id wins; sessions added in this edit get fresh ids
+            updatedTimetable.setId(timetableId);
+            timetableIdGenerator.assignIds(updatedTimetable);
+
+            ExamFolder updated = editTimetable(folderId, expectedVersion, writeId,
+                    () -> timetableStore.replace(folderId, timetableId, updatedTimetable),
+                    previous -> timetableStore.restore(previous, updatedTimetable.getUpdatedAt()));
+            publish(updated, FolderChange.Operation.TIMETABLE_UPDATED, timetableId);
+            return withTimetables(updated);
+        } catch (OptimisticLockingFailureException | BulkheadFullException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            databaseErrors.record(e);
+            if (isOutageFor(e, folderId)) {
+                return localUpdateTimetable(folderId, timetableId, updatedTimetable, expectedVersion);
+            }
+            throw e;
+        }
+    }
+
+    private ExamFolder localUpdateTimetable(String folderId, String timetableId, Timetable updatedTimetable,
+                                            Long expectedVersion) {
+        updatedTimetable.setId(timetableId);
+        timetableIdGenerator.assignIds(updatedTimetable);
+        return localModify(folderId, expectedVersion, FolderChange.Operation.TIMETABLE_UPDATED, timetableId,
+                folder -> replaceTimetable(folder, timetableId, existing -> {
+                    if (updatedTimetable.getCreatedAt() == null) {
+                        updatedTimetable.setCreatedAt(existing.getCreatedAt());
                     }
+                    updatedTimetable.setUpdatedAt(LocalDateTime.now());
+                    return updatedTimetable;
+                }));
+    }
+
+    // False if the folder has no such timetable, or the replacement is null
+    private boolean replaceTimetable(ExamFolder folder, String timetableId, UnaryOperator<Timetable> replacement) {
+        List<Timetable> timetables = folder.getTimetables();
+        for (int i = 0; i < timetables.size(); i++) {
+            if (timetableId.equals(timetables.get(i).getId())) {
+                Timetable replaced = replacement.apply(timetables.get(i));
+                if (replaced == null) {
+                    return false;
                 }
+                timetables.set(i, replaced);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Applies a JSON Patch to one timetable as a single nested update instead of rewriting it. Returns the
+    // folder as bumped, holding only the patched timetable, or null if the folder, the timetable or a
+    // patched day or session does not exist.
+    public ExamFolder patchTimetableInFolder(String folderId, String timetableId,
+                                             List<TimetablePatchOperation> operations, Long expectedVersion) {
+        // Invalid patches are rejected before the folder version is spent on them
+        TimetablePatch patch = TimetablePatch.of(operations, objectMapper, timetableIdGenerator);
+        flushFolder(folderId);
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localPatchTimetable(folderId, timetableId, patch, expectedVersion);
+        }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            LocalDateTime patchedAt = LocalDateTime.now();
+            AtomicReference<Timetable> previous = new AtomicReference<>();
+            ExamFolder patched = editTimetable(folderId, expectedVersion, null,
+                    () -> {
+                        previous.set(timetableStore.patch(folderId, timetableId, patch, patchedAt));
+                        return previous.get();
+                    },
+                    timetable -> timetableStore.restore(timetable, patchedAt));
+            if (patched != null) {
+                // The guards matched in Mongo, so the same patch applies to the copy it replaced
+                Timetable timetable = patch.applyTo(previous.get(), objectMapper);
+                timetable.setUpdatedAt(patchedAt);
+                patched.setTimetables(List.of(timetable));
             }
+            publish(patched, FolderChange.Operation.TIMETABLE_UPDATED, timetableId);
+            return patched;
+        } catch (OptimisticLockingFailureException | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
+            if (isOutageFor(e, folderId)) {
+                return localPatchTimetable(folderId, timetableId, patch, expectedVersion);
+            }
         }
         return null;
     }
 
+    private ExamFolder localPatchTimetable(String folderId, String timetableId, TimetablePatch patch,
+                                           Long expectedVersion) {
+        ExamFolder patched = localModify(folderId, expectedVersion, FolderChange.Operation.TIMETABLE_UPDATED,
+                timetableId, folder -> replaceTimetable(folder, timetableId,
+                        existing -> patch.applyTo(existing, objectMapper)));
+        if (patched != null) {
+            patched.getTimetables().removeIf(timetable -> !timetableId.equals(timetable.getId()));
+        }
+        return patched;
+    }
+
     public ExamFolder deleteTimetableFromFolder(String folderId, String timetableId) {
-        if (examFolderRepository == null) {
-            return null;
+        return deleteTimetableFromFolder(folderId, timetableId, null);
+    }
+
+    public ExamFolder deleteTimetableFromFolder(String folderId, String timetableId, Long expectedVersion) {
+        flushFolder(folderId);
+        if (mongoTemplate == null || localFolderStore.isPending(folderId)) {
+            return localDeleteTimetable(folderId, timetableId, expectedVersion);
         }
-        try {
-            Optional<ExamFolder> existingFolder = examFolderRepository.findById(folderId);
-            if (existingFolder.isPresent()) {
-                ExamFolder folder = existingFolder.get();
-                
-                if (folder.getTimetables() != null) {
-                    folder.getTimetables().removeIf(timetable -> timetable.getId().equals(timetableId));
-                    folder.setUpdatedAt(LocalDateTime.now());
-                    return examFolderRepository.save(folder);
-                }
-            }
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            ExamFolder updated = editTimetable(folderId, expectedVersion, null,
+                    () -> timetableStore.remove(folderId, timetableId),
+                    timetableStore::reinsert);
+            publish(updated, FolderChange.Operation.TIMETABLE_DELETED, timetableId);
+            return withTimetables(updated);
+        } catch (OptimisticLockingFailureException | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
+            if (isOutageFor(e, folderId)) {
+                return localDeleteTimetable(folderId, timetableId, expectedVersion);
+            }
         }
         return null;
     }
 
+    private ExamFolder localDeleteTimetable(String folderId, String timetableId, Long expectedVersion) {
+        return localModify(folderId, expectedVersion, FolderChange.Operation.TIMETABLE_DELETED, timetableId,
+                folder -> {
+                    folder.getTimetables().removeIf(timetable -> timetableId.equals(timetable.getId()));
+                    return true;
+                });
+    }
+
     public ExamFolder getExamFolderByUserAndName(String userId, String folderName) {
+        flushUser(userId);
         if (examFolderRepository == null) {
+            return localFolderByName(userId, folderName);
+        }
+        // A cached listing is complete, so it can answer misses as well as hits
+        List<ExamFolder> cached = examFolderCache.getUserFolders(userId);
+        if (cached != null) {
+            for (ExamFolder folder : cached) {
+                if (folderName != null && folderName.equals(folder.getFolderName())) {
+                    return folder;
+                }
+            }
             return null;
         }
-        try {
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
             Optional<ExamFolder> folder = examFolderRepository.findByUserIdAndFolderName(userId, folderName);
             return folder.orElse(null);
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
+            return folderByName(lastKnownFolders(userId, e), folderName);
+        }
+    }
+
+    private ExamFolder localFolderByName(String userId, String folderName) {
+        return folderByName(localFolderStore.findByUserId(userId), folderName);
+    }
+
+    private static ExamFolder folderByName(List<ExamFolder> folders, String folderName) {
+        for (ExamFolder folder : folders) {
+            if (folderName != null && folderName.equals(folder.getFolderName())) {
+                return folder;
+            }
+        }
+        return null;
+    }
+
+    // What a read answers when Mongo cannot: the listing last cached, with the writes held locally laid
+    // over it. LocalFolderStore alone holds only those writes, so without a cached listing there is nothing
+    // complete to answer with, and the read fails as unavailable rather than coming back empty.
+    private List<ExamFolder> lastKnownFolders(String userId, Exception e) {
+        List<ExamFolder> cached = examFolderCache.getLastKnownUserFolders(userId);
+        if (cached == null) {
+            throw new DatabaseUnavailableException("Exam folders are unavailable, try again shortly", e);
+        }
+        return localFolderStore.overlay(userId, cached);
+    }
+
+    // A folder with writes held locally is answered from them, any other from its last cached copy
+    private ExamFolder lastKnownFolder(String folderId, Exception e) {
+        ExamFolder folder = localFolderStore.findById(folderId);
+        if (folder == null) {
+            folder = examFolderCache.getLastKnownFolder(folderId);
+        }
+        if (folder == null) {
+            throw new DatabaseUnavailableException("Exam folder " + folderId + " is unavailable, try again shortly", e);
+        }
+        return folder;
+    }
+
+    private Query folderById(String folderId, Long expectedVersion) {
+        Query query = new Query(Criteria.where("_id").is(folderId));
+        if (expectedVersion != null) {
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        }
+        return query;
+    }
+
+    // The folder's version is the lock: bump it first, and only the writer that won applies its timetable
+    // change. If that change fails the bump is undone, unless the folder has been written since, so the
+    // failed write neither spends a version nor leaves the folder's own fields half-applied. Returns the
+    // folder as bumped, or null if the folder (or, when the write says so, the timetable) does not exist.
+    private ExamFolder modifyFolder(Query query, Update update, String folderId, Long expectedVersion,
+                                    Predicate<ExamFolder> timetableWrite) {
+        ExamFolder folder = bump(query, update, folderId, expectedVersion, false);
+        if (folder == null) {
             return null;
         }
+        Update undo = applyBump(folder, update);
+        try {
+            // The returned document says whether this folder still embeds its timetables
+            if (folder.hasEmbeddedTimetables()) {
+                timetableStore.migrate(folderId);
+            }
+            if (timetableWrite.test(folder)) {
+                return folder;
+            }
+            undoBump(folder, undo);
+            return null;
+        } catch (RuntimeException e) {
+            try {
+                undoBump(folder, undo);
+            } catch (RuntimeException undoFailure) {
+                e.addSuppressed(undoFailure);
+            }
+            throw e;
+        } finally {
+            examFolderCache.invalidate(folder);
+        }
+    }
+
+    // Applies the update's top-level $set and $inc to the folder as it was before the bump, and returns the
+    // update that puts those fields back
+    private static Update applyBump(ExamFolder folder, Update update) {
+        BeanWrapper bean = PropertyAccessorFactory.forBeanPropertyAccess(folder);
+        Document changes = update.getUpdateObject();
+        Update undo = new Update();
+        for (Map.Entry<String, Object> field : changes.get("$set", new Document()).entrySet()) {
+            undo.set(field.getKey(), bean.getPropertyValue(field.getKey()));
+            bean.setPropertyValue(field.getKey(), field.getValue());
+        }
+        for (Map.Entry<String, Object> field : changes.get("$inc", new Document()).entrySet()) {
+            Number current = (Number) bean.getPropertyValue(field.getKey());
+            undo.set(field.getKey(), current);
+            bean.setPropertyValue(field.getKey(),
+                    (current != null ? current.longValue() : 0L) + ((Number) field.getValue()).longValue());
+        }
+        return undo;
+    }
+
+    private void undoBump(ExamFolder folder, Update undo) {
+        Query bumped = new Query(Criteria.where("_id").is(folder.getId()).and("version").is(folder.getVersion()));
+        if (mongoTemplate.updateFirst(bumped, undo, ExamFolder.class).getModifiedCount() == 0) {
+            log.warn("Exam folder {} was written after its failed update; version {} stays spent",
+                    folder.getId(), folder.getVersion());
+        }
+    }
+
+    // Edits of one timetable write it first, matched on its id and folder, so a missing timetable costs
+    // neither an extra query nor a folder version: two round trips in all. The folder's version is bumped
+    // after; if that finds the folder changed or gone, the timetable is put back as it was. Returns the
+    // folder as bumped, or null if the folder or the timetable does not exist.
+    private ExamFolder editTimetable(String folderId, Long expectedVersion, String writeId,
+                                     Supplier<Timetable> timetableWrite, Consumer<Timetable> undo) {
+        try {
+            Timetable previous = timetableWrite.get();
+            if (previous == null) {
+                return null;
+            }
+            Query query = folderById(folderId, expectedVersion);
+            Update update = new Update()
+                    .set("updatedAt", LocalDateTime.now())
+                    .inc("version", 1);
+            if (writeId != null && expectedVersion != null) {
+                // A retry whose earlier attempt bumped the folder before failing finds that bump and keeps it
+                query = new Query(Criteria.where("_id").is(folderId).orOperator(
+                        Criteria.where("version").is(expectedVersion),
+                        Criteria.where("version").is(expectedVersion + 1).and("writeId").is(writeId)));
+                update = new Update()
+                        .set("updatedAt", LocalDateTime.now())
+                        .set("version", expectedVersion + 1)
+                        .set("writeId", writeId);
+            }
+            ExamFolder folder;
+            try {
+                folder = bump(query, update, folderId, expectedVersion, true);
+            } catch (OptimisticLockingFailureException e) {
+                undo.accept(previous);
+                throw e;
+            }
+            if (folder == null) {
+                undo.accept(previous);
+            }
+            return folder;
+        } finally {
+            examFolderCache.invalidateFolder(folderId);
+        }
+    }
+
+    // The folder as bumped, or as it was before if not returnNew; null if the folder does not exist. A
+    // version conflict throws.
+    private ExamFolder bump(Query query, Update update, String folderId, Long expectedVersion, boolean returnNew) {
+        ExamFolder folder = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(returnNew), ExamFolder.class);
+        if (folder == null) {
+            if (expectedVersion != null
+                    && mongoTemplate.exists(new Query(Criteria.where("_id").is(folderId)), ExamFolder.class)) {
+                throw new OptimisticLockingFailureException(
+                        "Exam folder " + folderId + " was modified concurrently (expected version " + expectedVersion + ")");
+            }
+            return null;
+        }
+        examFolderCache.invalidate(folder);
+        return folder;
+    }
+
+    // For viewers subscribed through FolderChangeBroadcaster; a null folder means nothing was written
+    private void publish(ExamFolder folder, FolderChange.Operation operation, String timetableId) {
+        if (folder != null) {
+            eventPublisher.publishEvent(new FolderChange(folder.getUserId(), folder.getId(), timetableId,
+                    operation, folder.getVersion()));
+        }
+    }
+
+    // Held timetable edits go to Mongo before anything reads past them or writes the folder some other way
+    private void flushFolder(String folderId) {
+        if (timetableWrites != null) {
+            timetableWrites.flush(folderId);
+        }
+    }
+
+    private void flushUser(String userId) {
+        if (timetableWrites != null) {
+            timetableWrites.flushUser(userId);
+        }
+    }
+
+    // Local writes are kept in LocalFolderStore and replayed to Mongo by LocalFolderSync
+    private ExamFolder localCreate(ExamFolder examFolder, String timetableId) {
+        if (examFolder.getTimetables() == null) {
+            examFolder.setTimetables(new ArrayList<>());
+        }
+        for (Timetable timetable : examFolder.getTimetables()) {
+            timetableIdGenerator.assignIds(timetable);
+        }
+        ExamFolder created = localFolderStore.create(examFolder);
+        if (created != null) {
+            examFolderCache.invalidateUser(created.getUserId());
+            publish(created, FolderChange.Operation.FOLDER_CREATED, timetableId);
+        }
+        return created;
+    }
+
+    private ExamFolder localModify(String folderId, Long expectedVersion, FolderChange.Operation operation,
+                                   String timetableId, Predicate<ExamFolder> change) {
+        ExamFolder folder = localFolderStore.modify(folderId, examFolderCache.getFolder(folderId), expectedVersion,
+                change);
+        if (folder != null) {
+            examFolderCache.invalidate(folder);
+            publish(folder, operation, timetableId);
+        }
+        return folder;
+    }
+
+    // Mongo could not be reached and the folder's last state is known here, so the write can be taken locally
+    private boolean isOutageFor(Exception e, String folderId) {
+        return LocalFolderStore.isOutage(e)
+                && (localFolderStore.isPending(folderId) || examFolderCache.getFolder(folderId) != null);
+    }
+
+    private ExamFolder withTimetables(ExamFolder folder) {
+        if (folder != null) {
+            timetableStore.attach(List.of(folder));
+        }
+        return folder;
+    }
+
+    // The folder is written first so its id exists; if its timetables cannot be written it is removed again
+    private void insertTimetables(ExamFolder folder) {
+        try {
+            timetableStore.insert(folder, folder.getTimetables());
+        } catch (RuntimeException e) {
+            examFolderRepository.deleteById(folder.getId());
+            throw e;
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.repository.ReactiveExamFolderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking reads on the reactive driver. Nothing here holds a thread while waiting on Mongo,
+// and cursors are drained only as fast as the client reads (limitRate bounds what is prefetched).
+// A Mongo error is recorded and passed on as DatabaseUnavailableException: before the first element it
+// becomes a 503, after it the response is cut off, so a client never takes a partial listing for all of it.
+@Service
+public class ExamFolderStreamService {
+
+    private static final int PREFETCH = 32;
+    // Folders whose timetables are fetched at once while streaming a listing; output keeps listing order
+    private static final int TIMETABLE_CONCURRENCY = 4;
+
+    @Autowired(required = false)
+    private ReactiveExamFolderRepository reactiveExamFolderRepository;
+
+    @Autowired(required = false)
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private DatabaseErrors databaseErrors;
+
+    @Autowired
+    private TimetableStore timetableStore;
+
+    // Newest first, the same order as the summaries listing, on the user_updated index
+    public Flux<ExamFolder> streamFoldersByUserId(String userId) {
+        if (reactiveExamFolderRepository == null) {
+            return Flux.empty();
+        }
+        return reactiveExamFolderRepository
+                .findByUserId(userId, Sort.by(Sort.Direction.DESC, "updatedAt", "id"))
+                .limitRate(PREFETCH)
+                .flatMapSequential(this::withTimetables, TIMETABLE_CONCURRENCY)
+                .onErrorMap(e -> {
+                    databaseErrors.record(e);
+                    return unavailable(e);
+                });
+    }
+
+    public Mono<ExamFolder> findFolderById(String folderId) {
+        if (reactiveExamFolderRepository == null) {
+            return Mono.empty();
+        }
+        return reactiveExamFolderRepository.findById(folderId)
+                .flatMap(this::withTimetables)
+                .onErrorMap(e -> {
+                    databaseErrors.record(e);
+                    return unavailable(e);
+                });
+    }
+
+    // One timetable document at a time off the folder_position index, so a large folder is never held whole
+    public Flux<Timetable> streamTimetables(String folderId) {
+        if (reactiveMongoTemplate == null) {
+            return Flux.empty();
+        }
+        return timetables(folderId)
+                .limitRate(PREFETCH)
+                .onErrorMap(e -> {
+                    databaseErrors.record(e);
+                    return unavailable(e);
+                });
+    }
+
+    private static DatabaseUnavailableException unavailable(Throwable e) {
+        return new DatabaseUnavailableException("Exam folders are unavailable, try again shortly", e);
+    }
+
+    private Mono<ExamFolder> withTimetables(ExamFolder folder) {
+        return timetables(folder.getId()).collectList().map(timetables -> {
+            folder.setTimetables(timetables);
+            return folder;
+        });
+    }
+
+    // Falls back to the embedded array of a folder TimetableMigration has not reached yet
+    private Flux<Timetable> timetables(String folderId) {
+        Query query = new Query(Criteria.where("folderId").is(folderId)).with(Sort.by("position", "id"));
+        Flux<Timetable> timetables = reactiveMongoTemplate.find(query, Timetable.class);
+        if (timetableStore.isMigrated()) {
+            return timetables;
+        }
+        Aggregation embedded = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(folderId)),
+                Aggregation.unwind("timetables"),
+                Aggregation.replaceRoot("timetables"));
+        return timetables.switchIfEmpty(reactiveMongoTemplate.aggregate(embedded, EmbeddedTimetables.class, Timetable.class));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.FolderChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes FolderChange events to the open SSE connections of the user they concern. Every connection has
+// its own bounded queue drained by a virtual thread, so the writer that published never waits on a viewer
+// and a slow viewer delays nobody else. A viewer that falls MAX_QUEUED changes behind is disconnected and
+// refetches on reconnect. With the change-stream relay on, local changes arrive through FolderChangeRelay.
+@Component
+public class FolderChangeBroadcaster {
+
+    private static final int MAX_QUEUED = 256;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    @Value("${app.events.change-stream.enabled:false}")
+    private boolean relayed;
+
+    @Value("${app.events.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${app.events.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    @Value("${app.events.heartbeat-seconds:25}")
+    private long heartbeatSeconds;
+
+    // Null when the instance already holds maxSubscribers connections
+    public SseEmitter subscribe(String userId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes)));
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            Set<Subscriber> updated = userSubscribers != null ? userSubscribers : ConcurrentHashMap.newKeySet();
+            updated.add(subscriber);
+            return updated;
+        });
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+        Thread.ofVirtual().name("folder-events-" + userId).start(subscriber::drain);
+        return subscriber.emitter;
+    }
+
+    @EventListener
+    public void onFolderChange(FolderChange change) {
+        if (!relayed) {
+            broadcast(change);
+        }
+    }
+
+    public void broadcast(FolderChange change) {
+        Set<Subscriber> userSubscribers = subscribers.get(change.getUserId());
+        if (userSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : userSubscribers) {
+            subscriber.offer(change);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public int getDropped() {
+        return dropped.get();
+    }
+
+    private class Subscriber {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<FolderChange> queue = new ArrayBlockingQueue<>(MAX_QUEUED);
+        private volatile boolean closed;
+
+        Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(FolderChange change) {
+            if (!closed && !queue.offer(change)) {
+                dropped.incrementAndGet();
+                emitter.complete();
+                close();
+            }
+        }
+
+        // Sends queued changes in order, and a comment line when idle so proxies keep the connection open
+        void drain() {
+            try {
+                while (!closed) {
+                    FolderChange change = queue.poll(heartbeatSeconds, TimeUnit.SECONDS);
+                    if (closed) {
+                        break;
+                    }
+                    if (change != null) {
+                        emitter.send(SseEmitter.event().name("folder-change").data(change, MediaType.APPLICATION_JSON));
+                    } else {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter already completed
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.computeIfPresent(userId, (id, userSubscribers) -> {
+                if (userSubscribers.remove(this)) {
+                    subscriberCount.decrementAndGet();
+                }
+                return userSubscribers.isEmpty() ? null : userSubscribers;
+            });
+        }
+    }
+}
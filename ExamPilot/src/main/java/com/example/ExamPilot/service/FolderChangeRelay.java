@@ -0,0 +1,219 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.FolderChange;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fans folder changes out across instances when app.events.change-stream.enabled is set. Each change is
+// inserted into folder_changes (kept an hour), and every instance, this one included, pushes what a change
+// stream on that collection delivers, so a viewer sees every change in write order whichever instance took
+// it. Change streams need a replica set; Atlas clusters always are one.
+//
+// Changes are published from inside the writer's bulkhead permit, so they are only queued there; a
+// publisher thread inserts them in batches. If the queue is full or Mongo does not take a batch, the
+// changes go straight to this instance's viewers, and viewers on other instances catch up on their next
+// refetch.
+@Component
+public class FolderChangeRelay {
+
+    private static final long RETRY_MILLIS = 5000;
+    private static final int BATCH_SIZE = 100;
+    // ChangeStreamHistoryLost and InvalidResumeToken: the only errors after which resuming cannot work
+    private static final int HISTORY_LOST = 286;
+    private static final int INVALID_RESUME_TOKEN = 260;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FolderChangeBroadcaster folderChangeBroadcaster;
+
+    @Autowired
+    private DatabaseErrors databaseErrors;
+
+    @Value("${app.events.change-stream.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.events.relay-queue-size:10000}")
+    private int queueSize;
+
+    private BlockingQueue<FolderChange> outbox;
+    private Thread publisher;
+    private Thread watcher;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private volatile boolean stopped;
+    private final AtomicLong unrelayed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        outbox = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    @EventListener
+    public void onFolderChange(FolderChange change) {
+        if (!enabled || mongoTemplate == null) {
+            return;
+        }
+        if (!outbox.offer(change)) {
+            broadcastLocally(List.of(change));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || mongoTemplate == null) {
+            return;
+        }
+        publisher = new Thread(this::publish, "folder-change-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+        watcher = new Thread(this::watch, "folder-change-relay");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        if (publisher != null) {
+            publisher.interrupt();
+        }
+        if (watcher != null) {
+            MongoChangeStreamCursor<ChangeStreamDocument<Document>> open = cursor;
+            if (open != null) {
+                try {
+                    open.close();
+                } catch (Exception e) {
+                    // the watcher is interrupted below either way
+                }
+            }
+            watcher.interrupt();
+        }
+        flush();
+    }
+
+    // Changes queued and not inserted yet
+    public int getQueued() {
+        return outbox.size();
+    }
+
+    // Changes that only reached this instance's viewers
+    public long getUnrelayed() {
+        return unrelayed.get();
+    }
+
+    private void publish() {
+        List<FolderChange> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(outbox.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            outbox.drainTo(batch, BATCH_SIZE - 1);
+            insert(batch);
+            batch.clear();
+        }
+    }
+
+    // Inserts whatever is queued now, on the caller's thread
+    void flush() {
+        List<FolderChange> batch = new ArrayList<>(BATCH_SIZE);
+        while (outbox.drainTo(batch, BATCH_SIZE) > 0) {
+            insert(batch);
+            batch.clear();
+        }
+    }
+
+    private void insert(List<FolderChange> batch) {
+        try {
+            mongoTemplate.insert(batch, FolderChange.class);
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            broadcastLocally(batch);
+        }
+    }
+
+    private void broadcastLocally(List<FolderChange> changes) {
+        unrelayed.addAndGet(changes.size());
+        for (FolderChange change : changes) {
+            folderChangeBroadcaster.broadcast(change);
+        }
+    }
+
+    // Resumes after the last delivered change when the stream drops, however long Mongo is away. Only when
+    // the token can no longer be resumed from (it fell off the oplog) does it start again from now.
+    private void watch() {
+        String collection = mongoTemplate.getCollectionName(FolderChange.class);
+        BsonDocument resumeToken = null;
+        while (!stopped) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> open = open(collection, resumeToken)) {
+                cursor = open;
+                while (!stopped) {
+                    ChangeStreamDocument<Document> event = open.next();
+                    resumeToken = event.getResumeToken();
+                    if (event.getFullDocument() != null) {
+                        folderChangeBroadcaster.broadcast(
+                                mongoTemplate.getConverter().read(FolderChange.class, event.getFullDocument()));
+                    }
+                }
+            } catch (Exception e) {
+                if (stopped) {
+                    return;
+                }
+                databaseErrors.record(e);
+                if (cannotResume(e)) {
+                    resumeToken = null;
+                }
+            } finally {
+                cursor = null;
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(String collection, BsonDocument resumeToken) {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(collection)
+                .watch(List.of(Aggregates.match(Filters.eq("operationType", "insert"))));
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+
+    static boolean cannotResume(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo
+                    && (mongo.getCode() == HISTORY_LOST || mongo.getCode() == INVALID_RESUME_TOKEN)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,565 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.ExamFolderSummary;
+import com.example.ExamPilot.model.ScheduledExamDay;
+import com.example.ExamPilot.model.Timetable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+// Durable store of folder writes that Mongo does not have yet. While Mongo cannot be reached, a write is
+// applied to the folder's last known state (held here, or ExamFolderCache's copy) and kept pending until
+// LocalFolderSync replays it, and reads of that folder or its owner's listings see it. Only pending folders
+// are held, so memory and journal grow with the outage, not the dataset. With app.store.mode=local there
+// is no Mongo, every folder is pending and this is the only store.
+//
+// The journal is append-only, one record per change holding the folder's whole local state, the latest
+// record of a folder winning. Each record is a length, a CRC32 and the JSON. At startup a torn last record
+// is cut off; the file is rewritten from the live state once most of it is superseded. Writers take the
+// lock (not a monitor, so virtual threads waiting on the journal do not pin their carrier); the pending
+// checks made on every request read the concurrent maps without it.
+@Component
+public class LocalFolderStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalFolderStore.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final int COMPACT_MIN_RECORDS = 1000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.store.mode:mongo}")
+    private String mode;
+
+    @Value("${app.local-store.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.local-store.path:data/exampilot-folders.journal}")
+    private String path;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Pending folders by id, and their ids by owner
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byUser = new ConcurrentHashMap<>();
+    private volatile FileChannel journal;
+    private long records;
+    private long sequence;
+
+    // One journal record: the local state of a folder. folder is null once deleted; pending means the
+    // state is not in Mongo yet, and baseVersion is the Mongo version it was changed from. A record that
+    // is not pending (a removal, or a mirror written by older versions) drops the folder.
+    static class Entry {
+        public String folderId;
+        public String userId;
+        public ExamFolder folder;
+        public boolean pending;
+        public boolean created;
+        public Long baseVersion;
+        public long sequence;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled && !isLocalOnly()) {
+            return;
+        }
+        Path file = Path.of(path);
+        lock.lock();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = channel.size();
+            long end = load(channel, size);
+            if (end < size) {
+                log.warn("Local folder journal {}: dropping {} bytes of a torn record", path, size - end);
+                channel.truncate(end);
+            }
+            channel.position(end);
+            journal = channel;
+            compactIfSuperseded();
+        } catch (IOException e) {
+            // Only the local mode depends on it; otherwise run on Mongo alone
+            if (isLocalOnly()) {
+                throw e;
+            }
+            log.error("Local folder store disabled, cannot open {}: {}", path, e.getMessage());
+            entries.clear();
+            byUser.clear();
+            journal = null;
+            return;
+        } finally {
+            lock.unlock();
+        }
+        if (!entries.isEmpty()) {
+            log.info("Local folder store: {} folders pending", entries.size());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.force(true);
+                journal.close();
+                journal = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isLocalOnly() {
+        return "local".equalsIgnoreCase(mode);
+    }
+
+    // Mongo could not be reached, as opposed to rejecting the operation
+    public static boolean isOutage(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException || cause instanceof MongoSocketException
+                    || cause instanceof MongoTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<ExamFolder> findByUserId(String userId) {
+        List<ExamFolder> folders = new ArrayList<>();
+        for (String folderId : byUser.getOrDefault(userId, Set.of())) {
+            Entry entry = entries.get(folderId);
+            if (entry != null && entry.folder != null) {
+                folders.add(copy(entry.folder));
+            }
+        }
+        folders.sort(Comparator.comparing(ExamFolder::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return folders;
+    }
+
+    public ExamFolder findById(String folderId) {
+        Entry entry = entries.get(folderId);
+        return entry != null && entry.folder != null ? copy(entry.folder) : null;
+    }
+
+    public boolean isPending(String folderId) {
+        return entries.containsKey(folderId);
+    }
+
+    public boolean hasPending(String userId) {
+        return byUser.containsKey(userId);
+    }
+
+    public int pendingCount() {
+        return entries.size();
+    }
+
+    public int pendingCount(String userId) {
+        return byUser.getOrDefault(userId, Set.of()).size();
+    }
+
+    // A Mongo listing with this instance's pending changes applied over it
+    public List<ExamFolder> overlay(String userId, List<ExamFolder> folders) {
+        if (!hasPending(userId)) {
+            return folders;
+        }
+        List<ExamFolder> merged = new ArrayList<>();
+        for (ExamFolder folder : folders) {
+            if (!isPending(folder.getId())) {
+                merged.add(folder);
+            }
+        }
+        merged.addAll(findByUserId(userId));
+        return merged;
+    }
+
+    // A page of Mongo summaries with the pending changes applied; Mongo is asked for pendingCount(userId)
+    // more than the limit, as that many of its rows may be replaced here
+    public List<ExamFolderSummary> overlaySummaries(String userId, List<ExamFolderSummary> summaries,
+                                                    LocalDateTime updatedBefore, String idBefore, int limit) {
+        if (!hasPending(userId)) {
+            return summaries.size() > limit ? new ArrayList<>(summaries.subList(0, limit)) : summaries;
+        }
+        List<ExamFolderSummary> merged = new ArrayList<>();
+        for (ExamFolderSummary summary : summaries) {
+            if (!isPending(summary.getId())) {
+                merged.add(summary);
+            }
+        }
+        merged.addAll(summaries(userId, updatedBefore, idBefore, limit));
+        merged.sort(Comparator.comparing(ExamFolderSummary::getUpdatedAt)
+                .thenComparing(ExamFolderSummary::getId).reversed());
+        return new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+    }
+
+    // Mongo exam days with the days of pending folders taken from here instead
+    public List<ScheduledExamDay> overlayExamDays(String userId, List<ScheduledExamDay> days, LocalDate from,
+                                                  LocalDate to) {
+        if (!hasPending(userId)) {
+            return days;
+        }
+        List<ScheduledExamDay> merged = new ArrayList<>();
+        for (ScheduledExamDay day : days) {
+            if (!isPending(day.getFolderId())) {
+                merged.add(day);
+            }
+        }
+        merged.addAll(examDays(userId, from, to));
+        merged.sort(Comparator.comparing(ScheduledExamDay::getDate)
+                .thenComparing(ScheduledExamDay::getTableName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return merged;
+    }
+
+    // Null when the store is disabled
+    public ExamFolder create(ExamFolder folder) {
+        ExamFolder created = copy(folder);
+        created.setId(new ObjectId().toHexString());
+        created.setVersion(0L);
+        created.setCreatedAt(LocalDateTime.now());
+        created.setUpdatedAt(LocalDateTime.now());
+
+        Entry entry = new Entry();
+        entry.folderId = created.getId();
+        entry.userId = created.getUserId();
+        entry.folder = created;
+        entry.pending = true;
+        entry.created = true;
+        lock.lock();
+        try {
+            if (journal == null) {
+                return null;
+            }
+            checkNameFree(created.getUserId(), created.getFolderName(), null);
+            append(entry, true);
+        } finally {
+            lock.unlock();
+        }
+        return copy(created);
+    }
+
+    // Applies the change to a copy of the pending state, or of mongoCopy (the folder as last read from
+    // Mongo) when nothing is pending for it, and keeps it if the change says so; null if neither is known
+    public ExamFolder modify(String folderId, ExamFolder mongoCopy, Long expectedVersion, Predicate<ExamFolder> change) {
+        lock.lock();
+        try {
+            Entry entry = current(folderId, mongoCopy);
+            if (journal == null || entry == null || entry.folder == null) {
+                return null;
+            }
+            if (expectedVersion != null && !expectedVersion.equals(entry.folder.getVersion())) {
+                throw new OptimisticLockingFailureException(
+                        "Exam folder " + folderId + " was modified concurrently (expected version " + expectedVersion + ")");
+            }
+            ExamFolder folder = copy(entry.folder);
+            if (!change.test(folder)) {
+                return null;
+            }
+            checkNameFree(folder.getUserId(), folder.getFolderName(), folderId);
+            folder.setVersion(folder.getVersion() != null ? folder.getVersion() + 1 : 1L);
+            folder.setUpdatedAt(LocalDateTime.now());
+
+            Entry changed = pendingFrom(entry);
+            changed.folder = folder;
+            append(changed, true);
+            return copy(folder);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The deleted folder, or null if neither a pending state nor mongoCopy is known
+    public ExamFolder delete(String folderId, ExamFolder mongoCopy) {
+        lock.lock();
+        try {
+            Entry entry = current(folderId, mongoCopy);
+            if (journal == null || entry == null || entry.folder == null) {
+                return null;
+            }
+            ExamFolder deleted = entry.folder;
+            // Never reached Mongo, so there is nothing to replay
+            append(entry.created ? removal(entry) : pendingFrom(entry), true);
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Oldest changes first
+    List<Entry> pending(int limit) {
+        List<Entry> pending = new ArrayList<>(entries.values());
+        pending.sort(Comparator.comparingLong(entry -> entry.sequence));
+        List<Entry> batch = new ArrayList<>();
+        for (Entry entry : pending.subList(0, Math.min(limit, pending.size()))) {
+            Entry snapshot = pendingFrom(entry);
+            snapshot.folder = entry.folder != null ? copy(entry.folder) : null;
+            snapshot.sequence = entry.sequence;
+            batch.add(snapshot);
+        }
+        return batch;
+    }
+
+    // Clears a replayed change unless the folder changed again here in the meantime; Mongo has it now
+    void replayed(Entry change) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(change.folderId);
+            if (journal != null && entry != null && entry.sequence == change.sequence) {
+                append(removal(entry), true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Newest first, keyset-paginated on (updatedAt, id) like the Mongo summaries
+    public List<ExamFolderSummary> summaries(String userId, LocalDateTime updatedBefore, String idBefore,
+                                                         int limit) {
+        List<ExamFolderSummary> summaries = new ArrayList<>();
+        for (ExamFolder folder : findByUserId(userId)) {
+            if (updatedBefore != null && (folder.getUpdatedAt().isAfter(updatedBefore)
+                    || (folder.getUpdatedAt().isEqual(updatedBefore) && folder.getId().compareTo(idBefore) >= 0))) {
+                continue;
+            }
+            ExamFolderSummary summary = new ExamFolderSummary();
+            summary.setId(folder.getId());
+            summary.setFolderName(folder.getFolderName());
+            summary.setDescription(folder.getDescription());
+            summary.setUpdatedAt(folder.getUpdatedAt());
+            summary.setVersion(folder.getVersion());
+            summary.setTimetableCount(folder.getTimetables() != null ? folder.getTimetables().size() : 0);
+            summaries.add(summary);
+        }
+        summaries.sort(Comparator.comparing(ExamFolderSummary::getUpdatedAt)
+                .thenComparing(ExamFolderSummary::getId).reversed());
+        return new ArrayList<>(summaries.subList(0, Math.min(limit, summaries.size())));
+    }
+
+    // Days with a date in [from, to], both null for every dated day
+    public List<ScheduledExamDay> examDays(String userId, LocalDate from, LocalDate to) {
+        List<ScheduledExamDay> days = new ArrayList<>();
+        for (ExamFolder folder : findByUserId(userId)) {
+            for (Timetable timetable : folder.getTimetables() != null ? folder.getTimetables() : List.<Timetable>of()) {
+                if (timetable.getTimetable() == null) {
+                    continue;
+                }
+                for (Timetable.TimetableDay day : timetable.getTimetable()) {
+                    LocalDate date = day != null ? day.getDate() : null;
+                    if (date == null || (from != null && date.isBefore(from)) || (to != null && date.isAfter(to))) {
+                        continue;
+                    }
+                    ScheduledExamDay scheduled = new ScheduledExamDay();
+                    scheduled.setFolderId(folder.getId());
+                    scheduled.setFolderName(folder.getFolderName());
+                    scheduled.setTimetableId(timetable.getId());
+                    scheduled.setTableName(timetable.getTableName());
+                    scheduled.setDate(date);
+                    scheduled.setDay(day.getDay());
+                    scheduled.setMorning(day.getMorning());
+                    scheduled.setAfternoon(day.getAfternoon());
+                    days.add(scheduled);
+                }
+            }
+        }
+        days.sort(Comparator.comparing(ScheduledExamDay::getDate)
+                .thenComparing(ScheduledExamDay::getTableName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return days;
+    }
+
+    // The offset after the last whole record
+    private long load(FileChannel channel, long size) throws IOException {
+        long end = 0;
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (size - end >= HEADER_BYTES) {
+            header.clear();
+            readFully(channel, header, end);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length <= 0 || length > size - end - HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer json = ByteBuffer.allocate(length);
+            readFully(channel, json, end + HEADER_BYTES);
+            crc.reset();
+            crc.update(json.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            apply(objectMapper.readValue(json.array(), Entry.class));
+            end += HEADER_BYTES + length;
+        }
+        return end;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void apply(Entry entry) {
+        if (entry.pending) {
+            Entry previous = entries.put(entry.folderId, entry);
+            if (previous != null && !previous.userId.equals(entry.userId)) {
+                unindex(previous);
+            }
+            byUser.computeIfAbsent(entry.userId, userId -> ConcurrentHashMap.newKeySet()).add(entry.folderId);
+        } else {
+            Entry previous = entries.remove(entry.folderId);
+            if (previous != null) {
+                unindex(previous);
+            }
+        }
+        sequence = Math.max(sequence, entry.sequence);
+        records++;
+    }
+
+    private void unindex(Entry entry) {
+        Set<String> folderIds = byUser.get(entry.userId);
+        if (folderIds != null) {
+            folderIds.remove(entry.folderId);
+            if (folderIds.isEmpty()) {
+                byUser.remove(entry.userId);
+            }
+        }
+    }
+
+    // Changes are forced to disk before the write is acknowledged; the caller holds the lock
+    private void append(Entry entry, boolean force) {
+        try {
+            entry.sequence = ++sequence;
+            byte[] json = objectMapper.writeValueAsBytes(entry);
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + json.length);
+            record.putInt(json.length).putInt((int) crc.getValue()).put(json).flip();
+            while (record.hasRemaining()) {
+                journal.write(record);
+            }
+            if (force) {
+                journal.force(false);
+            }
+            apply(entry);
+            compactIfSuperseded();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Local folder journal write failed", e);
+        }
+    }
+
+    private void compactIfSuperseded() throws IOException {
+        if (records > COMPACT_MIN_RECORDS && records > 4L * entries.size()) {
+            compact();
+        }
+    }
+
+    // Writes the live entries to a new file and swaps it in
+    private void compact() throws IOException {
+        Path file = Path.of(path);
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            for (Entry entry : entries.values()) {
+                byte[] json = objectMapper.writeValueAsBytes(entry);
+                crc.reset();
+                crc.update(json);
+                ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + json.length);
+                record.putInt(json.length).putInt((int) crc.getValue()).put(json).flip();
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        journal.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal.position(journal.size());
+        records = entries.size();
+    }
+
+    private Entry pendingFrom(Entry entry) {
+        Entry pending = new Entry();
+        pending.folderId = entry.folderId;
+        pending.userId = entry.userId;
+        pending.pending = true;
+        pending.created = entry.created;
+        // The first local change fixes the Mongo version that the replay expects to find
+        pending.baseVersion = entry.pending ? entry.baseVersion : entry.folder.getVersion();
+        return pending;
+    }
+
+    private Entry removal(Entry entry) {
+        Entry removal = new Entry();
+        removal.folderId = entry.folderId;
+        removal.userId = entry.userId;
+        return removal;
+    }
+
+    // The pending state of a folder, or its Mongo copy as a state with nothing pending yet
+    private Entry current(String folderId, ExamFolder mongoCopy) {
+        Entry entry = entries.get(folderId);
+        if (entry != null || mongoCopy == null || !folderId.equals(mongoCopy.getId())) {
+            return entry;
+        }
+        Entry base = new Entry();
+        base.folderId = folderId;
+        base.userId = mongoCopy.getUserId();
+        base.folder = copy(mongoCopy);
+        return base;
+    }
+
+    // Among the pending folders only; a clash with a folder in Mongo is renamed by LocalFolderSync
+    private void checkNameFree(String userId, String folderName, String folderId) {
+        for (String otherId : byUser.getOrDefault(userId, Set.of())) {
+            Entry entry = entries.get(otherId);
+            if (entry != null && entry.folder != null && !otherId.equals(folderId)
+                    && entry.folder.getFolderName() != null && entry.folder.getFolderName().equals(folderName)) {
+                throw new DuplicateKeyException("A folder named '" + folderName + "' already exists");
+            }
+        }
+    }
+
+    // Callers get their own objects, so nothing they change reaches the store without a write
+    private ExamFolder copy(ExamFolder folder) {
+        return objectMapper.convertValue(folder, ExamFolder.class);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.FolderChange;
+import com.example.ExamPilot.model.Timetable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replays the writes LocalFolderStore took while Mongo was unreachable, oldest first, once it answers
+// again. A replayed change only applies if the folder is still at the version it was changed from; if
+// someone changed it in Mongo meanwhile, their version stays and the local one is saved next to it as a
+// conflict copy, and a local delete is dropped. A name taken in the meantime gets an offline suffix.
+@Component
+public class LocalFolderSync {
+
+    private static final String OFFLINE_SUFFIX = " (offline)";
+    private static final String CONFLICT_SUFFIX = " (offline copy)";
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LocalFolderStore localFolderStore;
+
+    @Autowired
+    private TimetableStore timetableStore;
+
+    @Autowired
+    private ExamFolderCache examFolderCache;
+
+    @Autowired
+    private MongoBulkhead mongoBulkhead;
+
+    @Autowired
+    private DatabaseErrors databaseErrors;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.local-store.sync-interval-seconds:10}")
+    private long intervalSeconds;
+
+    @Value("${app.local-store.sync-batch-size:100}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (mongoTemplate == null || localFolderStore.isLocalOnly()) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "local-folder-sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                Thread.sleep(intervalSeconds * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                sync();
+            } catch (Exception e) {
+                databaseErrors.record(e);
+            }
+        }
+    }
+
+    // Returns the number of changes replayed; stops at the first sign that Mongo is still unreachable
+    public int sync() {
+        int replayed = 0;
+        for (LocalFolderStore.Entry change : localFolderStore.pending(batchSize)) {
+            try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+                replay(change);
+            } catch (BulkheadFullException e) {
+                return replayed;
+            } catch (Exception e) {
+                databaseErrors.record(e);
+                if (LocalFolderStore.isOutage(e)) {
+                    return replayed;
+                }
+                // Anything else is retried next round
+                continue;
+            }
+            examFolderCache.invalidateUser(change.userId);
+            examFolderCache.invalidateFolder(change.folderId);
+            localFolderStore.replayed(change);
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private void replay(LocalFolderStore.Entry change) {
+        if (change.folder == null) {
+            Query query = new Query(Criteria.where("_id").is(change.folderId).and("version").is(change.baseVersion));
+            query.fields().include("userId");
+            if (mongoTemplate.findAndRemove(query, ExamFolder.class) != null) {
+                timetableStore.deleteByFolderId(change.folderId);
+            }
+        } else if (change.created) {
+            // An earlier attempt may have inserted the folder before failing on its timetables
+            if (!mongoTemplate.exists(new Query(Criteria.where("_id").is(change.folderId)), ExamFolder.class)) {
+                insertRenamingOnClash(change.folder, OFFLINE_SUFFIX);
+            }
+            timetableStore.replaceAll(change.folder, change.folder.getTimetables());
+        } else if (!replayUpdate(change)) {
+            saveConflictCopy(change.folder);
+        }
+    }
+
+    // The folder's own fields, then its timetables as a whole. The local version also matches, so a replay
+    // that wrote the folder and then failed is finished rather than turned into a conflict.
+    private boolean replayUpdate(LocalFolderStore.Entry change) {
+        ExamFolder folder = change.folder;
+        Query query = new Query(Criteria.where("_id").is(change.folderId)
+                .and("version").in(change.baseVersion, folder.getVersion()));
+        Update update = new Update()
+                .set("folderName", folder.getFolderName())
+                .set("description", folder.getDescription())
+                .set("updatedAt", folder.getUpdatedAt())
+                .set("version", folder.getVersion());
+        ExamFolder written;
+        try {
+            written = mongoTemplate.findAndModify(query, update, ExamFolder.class);
+        } catch (DuplicateKeyException e) {
+            update.set("folderName", folder.getFolderName() + OFFLINE_SUFFIX);
+            written = mongoTemplate.findAndModify(query, update, ExamFolder.class);
+        }
+        if (written == null) {
+            return false;
+        }
+        if (written.hasEmbeddedTimetables()) {
+            timetableStore.migrate(change.folderId);
+        }
+        timetableStore.replaceAll(folder, folder.getTimetables());
+        return true;
+    }
+
+    private void saveConflictCopy(ExamFolder folder) {
+        ExamFolder copy = new ExamFolder(folder.getUserId(), folder.getFolderName() + CONFLICT_SUFFIX,
+                folder.getDescription());
+        copy.setVersion(0L);
+        copy.setCreatedAt(LocalDateTime.now());
+        copy.setUpdatedAt(LocalDateTime.now());
+        insertRenamingOnClash(copy, " " + folder.getId());
+        // Timetable ids are unique across folders, so the copies get new ones
+        List<Timetable> timetables = new ArrayList<>();
+        for (Timetable timetable : folder.getTimetables()) {
+            timetable.setId(null);
+            timetables.add(timetable);
+        }
+        timetableStore.insert(copy, timetables);
+        eventPublisher.publishEvent(new FolderChange(copy.getUserId(), copy.getId(), null,
+                FolderChange.Operation.FOLDER_CREATED, copy.getVersion()));
+    }
+
+    private void insertRenamingOnClash(ExamFolder folder, String suffix) {
+        try {
+            mongoTemplate.insert(folder);
+        } catch (DuplicateKeyException e) {
+            folder.setFolderName(folder.getFolderName() + suffix);
+            mongoTemplate.insert(folder);
+        }
+    }
+}
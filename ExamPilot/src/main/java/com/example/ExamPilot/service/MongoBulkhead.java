@@ -0,0 +1,118 @@
+package com.example.ExamPilot.service;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps concurrent Mongo work from ExamFolderService and UserService. With virtual threads the
+// request count is no longer bounded by the Tomcat pool, so this is what stops a burst from queueing
+// on the driver's connection pool; callers that cannot get a permit quickly fail with a 503 instead.
+@Component
+public class MongoBulkhead {
+
+    @Value("${app.mongo.bulkhead.max-concurrent:100}")
+    private int maxConcurrent = 100;
+
+    @Value("${app.mongo.bulkhead.max-wait-ms:100}")
+    private long maxWaitMillis = 100;
+
+    private Semaphore permits;
+
+    // A thread already holding a permit (a service method calling another) does not take a second one
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    // Set by MetricsConfig, so the wait distribution is exported and not only its average and max
+    private volatile Timer waitTimer;
+
+    public MongoBulkhead() {
+    }
+
+    MongoBulkhead(int maxConcurrent, long maxWaitMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMillis = maxWaitMillis;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public Permit acquire() {
+        int[] depth = held.get();
+        if (depth[0] > 0) {
+            depth[0]++;
+            return new Permit(false);
+        }
+
+        long start = System.nanoTime();
+        boolean granted;
+        try {
+            granted = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            granted = false;
+        }
+        long waited = System.nanoTime() - start;
+
+        if (!granted) {
+            rejected.incrementAndGet();
+            throw new BulkheadFullException("Too many concurrent database operations, try again shortly");
+        }
+        acquired.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        Timer timer = waitTimer;
+        if (timer != null) {
+            timer.record(waited, TimeUnit.NANOSECONDS);
+        }
+        depth[0] = 1;
+        return new Permit(true);
+    }
+
+    public void recordWaitsIn(Timer timer) {
+        waitTimer = timer;
+    }
+
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getInFlight() { return maxConcurrent - permits.availablePermits(); }
+    public int getQueued() { return permits.getQueueLength(); }
+    public long getAcquired() { return acquired.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getMaxWaitNanos() { return maxWaitNanos.get(); }
+
+    public double getAverageWaitMillis() {
+        long count = acquired.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final boolean owner;
+        private boolean closed;
+
+        private Permit(boolean owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            held.get()[0]--;
+            if (owner) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamDates;
+import com.example.ExamPilot.model.ScheduleRequest;
+import com.example.ExamPilot.model.Timetable;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Timed(value = "exampilot.service", histogram = true)
+public class SchedulingEngine {
+
+    private static final DateTimeFormatter WEEKDAY_FORMAT = DateTimeFormatter.ofPattern("EEE", Locale.US);
+
+    private static final int MORNING = 0;
+    private static final int AFTERNOON = 1;
+    private static final int RESTARTS_PER_TASK = 8;
+    private static final double DOUBLE_DAY_PENALTY = 1000.0;
+
+    @Value("${app.scheduler.restarts:64}")
+    private int restarts;
+
+    // Restarts run on a pool of their own, so generation never competes with parallel streams and
+    // CompletableFutures on the common pool, and never grows past this many threads
+    @Value("${app.scheduler.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        // At the cap a joining thread helps with queued restarts instead of adding a thread
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("scheduling-engine-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false, threads, threads, 1, forkJoinPool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public Timetable generate(ScheduleRequest request) {
+        if (request.getTableName() == null || request.getTableName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Please enter a table name.");
+        }
+
+        LocalDate start = ExamDates.parse(request.getStartDate());
+        LocalDate end = ExamDates.parse(request.getEndDate());
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Please select both a start and end date.");
+        }
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("The end date must be after the start date.");
+        }
+
+        List<ScheduleRequest.Subject> subjects = prioritise(request.getSubjects());
+        if (subjects.isEmpty()) {
+            throw new IllegalArgumentException("Please add at least one subject with a name.");
+        }
+
+        List<LocalDate> days = examDays(start, end);
+        if (subjects.size() > days.size() * 2) {
+            throw new IllegalArgumentException("Cannot schedule " + subjects.size() + " subjects in "
+                    + days.size() + " exam days. Consider extending the end date.");
+        }
+
+        int dayGap = request.getDayGap() == null || request.getDayGap() < 1 ? 1 : request.getDayGap();
+        Problem problem = new Problem(subjects.size(), days.size(), dayGap);
+
+        // Restarts are seeded from the input, so the same request always yields the same timetable
+        long seed = seedOf(start, end, dayGap, subjects);
+        Attempt best = pool.invoke(new RestartTask(problem, seed, 0, Math.max(1, restarts)));
+
+        return toTimetable(request, dayGap, subjects, days, best);
+    }
+
+    // Highest credits first, keeping input order for ties (same priority rule as the create form)
+    private List<ScheduleRequest.Subject> prioritise(List<ScheduleRequest.Subject> subjects) {
+        List<ScheduleRequest.Subject> valid = new ArrayList<>();
+        if (subjects != null) {
+            for (ScheduleRequest.Subject subject : subjects) {
+                if (subject != null && subject.getName() != null && !subject.getName().trim().isEmpty()) {
+                    valid.add(subject);
+                }
+            }
+        }
+        valid.sort((a, b) -> Integer.compare(credits(b), credits(a)));
+        return valid;
+    }
+
+    private int credits(ScheduleRequest.Subject subject) {
+        try {
+            return subject.getCredits() == null ? 0 : Integer.parseInt(subject.getCredits().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Weekdays in the range; weekends are never exam days
+    private List<LocalDate> examDays(LocalDate start, LocalDate end) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(date);
+            }
+        }
+        return days;
+    }
+
+    private long seedOf(LocalDate start, LocalDate end, int dayGap, List<ScheduleRequest.Subject> subjects) {
+        long seed = Objects.hash(start, end, dayGap);
+        for (ScheduleRequest.Subject subject : subjects) {
+            seed = 31 * seed + Objects.hash(subject.getName(), subject.getDuration(), subject.getCredits());
+        }
+        return seed;
+    }
+
+    private Timetable toTimetable(ScheduleRequest request, int dayGap, List<ScheduleRequest.Subject> subjects,
+                                  List<LocalDate> days, Attempt attempt) {
+        Map<Integer, Timetable.TimetableDay> byDay = new TreeMap<>();
+        for (int i = 0; i < subjects.size(); i++) {
+            int slot = attempt.slots[i];
+            Timetable.TimetableDay day = byDay.computeIfAbsent(slot / 2, index -> {
+                Timetable.TimetableDay created = new Timetable.TimetableDay();
+                created.setDate(days.get(index));
+                created.setDay(days.get(index).format(WEEKDAY_FORMAT));
+                return created;
+            });
+            if (slot % 2 == MORNING) {
+                day.setMorning(toSession(subjects.get(i), i, MORNING));
+            } else {
+                day.setAfternoon(toSession(subjects.get(i), i, AFTERNOON));
+            }
+        }
+
+        Timetable timetable = new Timetable();
+        timetable.setTableName(request.getTableName().trim());
+        timetable.setStartDate(ExamDates.parse(request.getStartDate()));
+        timetable.setEndDate(ExamDates.parse(request.getEndDate()));
+        timetable.setDayGap(dayGap);
+        timetable.setTimetable(new ArrayList<>(byDay.values()));
+        return timetable;
+    }
+
+    private Timetable.ExamSession toSession(ScheduleRequest.Subject subject, int index, int session) {
+        String name = subject.getName().trim();
+        Timetable.ExamSession exam = new Timetable.ExamSession();
+        exam.setName(name);
+        exam.setDuration(subject.getDuration());
+        exam.setCredits(subject.getCredits());
+        exam.setTime(session == MORNING ? "9:00 AM - 12:00 PM" : "12:30 PM - 3:30 PM");
+        exam.setSession(session == MORNING ? "Forenoon" : "Afternoon");
+        exam.setCode(name.substring(0, Math.min(3, name.length())).toUpperCase() + String.format("%03d", index + 1));
+        return exam;
+    }
+
+    // One randomised greedy pass over the slot bitset (slot = day * 2 + session)
+    static Attempt search(Problem problem, int restart, Random random) {
+        BitSet occupied = new BitSet(problem.days * 2);
+        int[] slots = new int[problem.subjects];
+        double jitter = random.nextDouble() * problem.dayGap;
+        int day = -1;
+
+        for (int i = 0; i < problem.subjects; i++) {
+            int from = day + 1;
+            int to = day < 0 ? 0 : Math.min(day + problem.dayGap, problem.latestDay(problem.subjects - i));
+            int sameDay = day < 0 || problem.perDay == 1 ? -1 : freeSlot(occupied, day);
+            double target = i * problem.idealGap + (random.nextDouble() * 2 - 1) * jitter;
+
+            int slot;
+            if (sameDay >= 0 && (to < from || Math.round(target) <= day)) {
+                slot = sameDay;
+            } else {
+                day = Math.max(from, Math.min(to, (int) Math.round(target)));
+                slot = day * 2 + (random.nextBoolean() ? AFTERNOON : MORNING);
+            }
+            occupied.set(slot);
+            slots[i] = slot;
+        }
+        return new Attempt(slots, score(problem, slots), restart);
+    }
+
+    private static int freeSlot(BitSet occupied, int day) {
+        int slot = occupied.nextClearBit(day * 2);
+        return slot < day * 2 + 2 ? slot : -1;
+    }
+
+    // Lower is better: double-booked days first, then uneven spacing, then session imbalance
+    private static double score(Problem problem, int[] slots) {
+        double score = 0;
+        int mornings = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] % 2 == MORNING) {
+                mornings++;
+            }
+            if (i > 0) {
+                int gap = slots[i] / 2 - slots[i - 1] / 2;
+                if (gap == 0) {
+                    score += DOUBLE_DAY_PENALTY;
+                } else {
+                    double deviation = gap - Math.max(1.0, problem.idealGap);
+                    score += deviation * deviation;
+                }
+            }
+        }
+        return score + Math.abs(2 * mornings - slots.length);
+    }
+
+    static class Problem {
+        final int subjects;
+        final int days;
+        final int dayGap;
+        final int perDay;
+        final double idealGap;
+
+        Problem(int subjects, int days, int dayGap) {
+            this.subjects = subjects;
+            this.days = days;
+            this.dayGap = dayGap;
+            this.perDay = subjects > days ? 2 : 1;
+            this.idealGap = subjects > 1 ? Math.min(dayGap, (days - 1) / (double) (subjects - 1)) : 0;
+        }
+
+        // Latest day for the next subject that still leaves room for the ones after it
+        int latestDay(int remaining) {
+            return days - 1 - Math.max(0, Math.ceilDiv(remaining - perDay, perDay));
+        }
+    }
+
+    static class Attempt {
+        final int[] slots;
+        final double score;
+        final int restart;
+
+        Attempt(int[] slots, double score, int restart) {
+            this.slots = slots;
+            this.score = score;
+            this.restart = restart;
+        }
+
+        // Ties go to the lower restart index so the winner never depends on thread timing
+        Attempt better(Attempt other) {
+            if (other == null) {
+                return this;
+            }
+            if (score != other.score) {
+                return score < other.score ? this : other;
+            }
+            return restart < other.restart ? this : other;
+        }
+    }
+
+    static class RestartTask extends RecursiveTask<Attempt> {
+        private final Problem problem;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        RestartTask(Problem problem, long seed, int from, int to) {
+            this.problem = problem;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Attempt compute() {
+            if (to - from <= RESTARTS_PER_TASK) {
+                Attempt best = null;
+                for (int restart = from; restart < to; restart++) {
+                    Attempt attempt = search(problem, restart, new Random(seed + restart * 0x9E3779B97F4A7C15L));
+                    best = attempt.better(best);
+                }
+                return best;
+            }
+            int middle = (from + to) >>> 1;
+            RestartTask left = new RestartTask(problem, seed, from, middle);
+            left.fork();
+            Attempt right = new RestartTask(problem, seed, middle, to).compute();
+            return left.join().better(right);
+        }
+    }
+}
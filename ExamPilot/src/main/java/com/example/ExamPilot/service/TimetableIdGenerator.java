@@ -0,0 +1,124 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.Timetable;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Time-ordered 64-bit ids: 41 bits of milliseconds since 2024-01-01, 10 bits of node id and a
+// 12 bit per-millisecond sequence. Rendered as 13 Crockford base32 characters so string order
+// matches creation order, which lets an id double as a pagination cursor.
+@Component
+public class TimetableIdGenerator {
+
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_LENGTH = 13;
+
+    // Negative means derive from host name and process id
+    @Value("${app.id.node-id:-1}")
+    private long configuredNodeId = -1;
+
+    private long nodeId;
+
+    // (milliseconds << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId >= 0 ? configuredNodeId & MAX_NODE : deriveNodeId();
+    }
+
+    public String nextId() {
+        long next;
+        while (true) {
+            long previous = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            // Same millisecond, or the clock stepped back: take the next sequence number.
+            // A full sequence carries into the millisecond field, borrowing from the future
+            // instead of waiting, so ids stay strictly increasing without blocking.
+            next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                break;
+            }
+        }
+        long millis = next >>> SEQUENCE_BITS;
+        long id = (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+        return encode(id);
+    }
+
+    // Assigns ids to the timetable and any of its sessions that do not have one yet
+    public void assignIds(Timetable timetable) {
+        if (timetable.getId() == null || timetable.getId().isEmpty()) {
+            timetable.setId(nextId());
+        }
+        if (timetable.getTimetable() == null) {
+            return;
+        }
+        for (Timetable.TimetableDay day : timetable.getTimetable()) {
+            if (day == null) {
+                continue;
+            }
+            assignId(day.getMorning());
+            assignId(day.getAfternoon());
+        }
+    }
+
+    // Creation time in epoch milliseconds of an id produced by this class
+    public static long timestampOf(String id) {
+        if (id == null || id.length() != ID_LENGTH) {
+            throw new IllegalArgumentException("Not a generated id: " + id);
+        }
+        long value = 0;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int digit = indexOf(id.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a generated id: " + id);
+            }
+            value = (value << 5) | digit;
+        }
+        return (value >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    private void assignId(Timetable.ExamSession session) {
+        if (session != null && (session.getId() == null || session.getId().isEmpty())) {
+            session.setId(nextId());
+        }
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long deriveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        String identity = host + "/" + ProcessHandle.current().pid();
+        return (identity.hashCode() & 0x7fffffffL) % (MAX_NODE + 1);
+    }
+}
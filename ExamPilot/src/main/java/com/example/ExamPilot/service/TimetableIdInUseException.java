@@ -0,0 +1,12 @@
+package com.example.ExamPilot.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+// A timetable's id is the _id of another folder's timetable; kept apart from DuplicateKeyException, which
+// callers read as a folder name clash
+public class TimetableIdInUseException extends DataIntegrityViolationException {
+
+    public TimetableIdInUseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
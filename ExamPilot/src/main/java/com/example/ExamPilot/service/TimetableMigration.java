@@ -0,0 +1,80 @@
+package com.example.ExamPilot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Moves timetables still embedded in exam_folders into the timetables collection, in the background while
+// the app serves. Reading them through the mapping also turns dates still stored as strings into BSON
+// dates. Until a folder is moved its timetables are read from the embedded copy, but its exam days do
+// not show up in date-range queries.
+@Component
+public class TimetableMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(TimetableMigration.class);
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TimetableStore timetableStore;
+
+    @Autowired
+    private MongoBulkhead mongoBulkhead;
+
+    @Value("${app.migration.timetable-batch-size:200}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (mongoTemplate == null) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "timetable-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Walks pending folders in _id order so a folder that keeps failing is visited once per run
+    public int migrate() {
+        int migrated = 0;
+        boolean skipped = false;
+        String lastId = null;
+        try {
+            while (true) {
+                List<EmbeddedTimetables> folders;
+                try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+                    folders = timetableStore.findEmbedded(batchSize, lastId);
+                    for (EmbeddedTimetables folder : folders) {
+                        lastId = folder.getId();
+                        if (timetableStore.migrate(folder)) {
+                            migrated++;
+                        } else {
+                            skipped = true;
+                        }
+                    }
+                }
+                if (folders.size() < batchSize) {
+                    break;
+                }
+            }
+            // Nothing left embedded: reads stop looking for embedded copies
+            if (!skipped) {
+                timetableStore.markMigrated();
+            }
+        } catch (Exception e) {
+            log.error("Timetable migration stopped: {}", e.getMessage());
+        }
+        if (migrated > 0) {
+            log.info("Moved timetables of {} folders into their own collection", migrated);
+        }
+        return migrated;
+    }
+}
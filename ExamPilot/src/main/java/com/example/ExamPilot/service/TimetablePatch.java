@@ -0,0 +1,182 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamDates;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.TimetablePatchOperation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// JSON Patch operations turned into one nested $set/$unset on a timetable document. Only what the editor
+// changes in place is patchable. A path into a day also guards that the day exists, and a session field
+// that its session does, so a patch can neither pad the days array nor write into an empty cell.
+final class TimetablePatch {
+
+    static final int MAX_OPERATIONS = 100;
+
+    private static final Pattern DAY_PATH = Pattern.compile("/timetable/(\\d{1,4})/(date|day|morning|afternoon)(?:/(\\w+))?");
+    private static final Set<String> SESSION_FIELDS = Set.of("name", "duration", "credits", "time", "session", "code");
+    private static final Object UNSET = new Object();
+
+    // Mongo field -> value, or UNSET; a later operation on the same field replaces an earlier one
+    private final Map<String, Object> changes = new LinkedHashMap<>();
+    private final Map<String, Criteria> guards = new LinkedHashMap<>();
+
+    private TimetablePatch() {
+    }
+
+    // Throws IllegalArgumentException naming the first operation that cannot be applied
+    static TimetablePatch of(List<TimetablePatchOperation> operations, ObjectMapper objectMapper,
+                             TimetableIdGenerator timetableIdGenerator) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Patch must contain at least one operation");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("Patch is limited to " + MAX_OPERATIONS + " operations");
+        }
+        TimetablePatch patch = new TimetablePatch();
+        for (TimetablePatchOperation operation : operations) {
+            patch.add(operation, objectMapper, timetableIdGenerator);
+        }
+        patch.checkOverlaps();
+        return patch;
+    }
+
+    List<Criteria> guards() {
+        return new ArrayList<>(guards.values());
+    }
+
+    Update update() {
+        Update update = new Update();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == UNSET) {
+                update.unset(change.getKey());
+            } else {
+                update.set(change.getKey(), change.getValue());
+            }
+        }
+        return update.set("updatedAt", LocalDateTime.now());
+    }
+
+    // The same change on a timetable held in memory, as LocalFolderStore keeps them; null where the guards
+    // would not match
+    Timetable applyTo(Timetable timetable, ObjectMapper objectMapper) {
+        ObjectNode tree = objectMapper.valueToTree(timetable);
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String[] path = change.getKey().split("\\.");
+            ObjectNode target = tree;
+            if (path.length > 1) {
+                JsonNode days = tree.get("timetable");
+                JsonNode day = days != null ? days.get(Integer.parseInt(path[1])) : null;
+                target = day instanceof ObjectNode dayNode ? dayNode : null;
+                if (target != null && path.length > 3) {
+                    target = target.get(path[2]) instanceof ObjectNode session ? session : null;
+                }
+                if (target == null) {
+                    return null;
+                }
+            }
+            String field = path[path.length - 1];
+            if (change.getValue() == UNSET) {
+                target.remove(field);
+            } else {
+                target.set(field, objectMapper.valueToTree(change.getValue()));
+            }
+        }
+        Timetable patched = objectMapper.convertValue(tree, Timetable.class);
+        patched.setUpdatedAt(LocalDateTime.now());
+        return patched;
+    }
+
+    private void add(TimetablePatchOperation operation, ObjectMapper objectMapper,
+                     TimetableIdGenerator timetableIdGenerator) {
+        String op = operation.getOp();
+        String path = operation.getPath();
+        if (!"add".equals(op) && !"replace".equals(op) && !"remove".equals(op)) {
+            throw new IllegalArgumentException("Unsupported op '" + op + "' at " + path + "; use add, replace or remove");
+        }
+        boolean remove = "remove".equals(op);
+        Object value = operation.getValue();
+
+        if ("/tableName".equals(path)) {
+            if (remove || !(value instanceof String name) || name.trim().isEmpty()) {
+                throw new IllegalArgumentException("/tableName needs a non-empty string");
+            }
+            changes.put("tableName", name);
+            return;
+        }
+
+        Matcher matcher = path != null ? DAY_PATH.matcher(path) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("Path " + path + " is not patchable");
+        }
+        String day = "timetable." + Integer.parseInt(matcher.group(1));
+        String member = matcher.group(2);
+        String field = matcher.group(3);
+        guard(day, Criteria.where(day).exists(true));
+
+        if (field != null) {
+            if ((!member.equals("morning") && !member.equals("afternoon")) || !SESSION_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Path " + path + " is not patchable");
+            }
+            String session = day + "." + member;
+            guard(session, Criteria.where(session).type(JsonSchemaObject.Type.OBJECT));
+            changes.put(session + "." + field, remove || value == null ? UNSET : text(path, value));
+        } else if (member.equals("date")) {
+            LocalDate date = remove || value == null ? null : ExamDates.parse(value.toString());
+            if (date == null) {
+                throw new IllegalArgumentException(path + " needs a date as dd/MM/yyyy or yyyy-MM-dd");
+            }
+            changes.put(day + ".date", date);
+        } else if (member.equals("day")) {
+            changes.put(day + ".day", remove || value == null ? UNSET : text(path, value));
+        } else if (remove || value == null) {
+            changes.put(day + "." + member, UNSET);
+        } else {
+            if (!(value instanceof Map)) {
+                throw new IllegalArgumentException(path + " needs an exam session object");
+            }
+            Timetable.ExamSession session = objectMapper.convertValue(value, Timetable.ExamSession.class);
+            if (session.getId() == null || session.getId().isEmpty()) {
+                session.setId(timetableIdGenerator.nextId());
+            }
+            changes.put(day + "." + member, session);
+        }
+    }
+
+    private void guard(String field, Criteria criteria) {
+        guards.putIfAbsent(field, criteria);
+    }
+
+    // Mongo rejects an update that sets both a field and a field inside it
+    private void checkOverlaps() {
+        for (String field : changes.keySet()) {
+            for (String other : changes.keySet()) {
+                if (other.startsWith(field + ".")) {
+                    throw new IllegalArgumentException("Patch changes both /" + field.replace('.', '/')
+                            + " and /" + other.replace('.', '/'));
+                }
+            }
+        }
+    }
+
+    private static String text(String path, Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        throw new IllegalArgumentException(path + " needs a string");
+    }
+}
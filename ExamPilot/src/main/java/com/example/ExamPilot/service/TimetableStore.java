@@ -0,0 +1,359 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.config.ExamFolderSizeMetrics;
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The timetables collection: one document per timetable, keyed to its folder by folderId and ordered by
+// position. Folders written before the move may still embed theirs; until TimetableMigration (or the
+// folder's next write) moves them out, reads fall back to the embedded copy. Callers hold the bulkhead.
+@Component
+public class TimetableStore {
+
+    private static final Sort FOLDER_ORDER = Sort.by("folderId", "position", "id");
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TimetableIdGenerator timetableIdGenerator;
+
+    @Autowired
+    private ExamFolderCache examFolderCache;
+
+    @Autowired(required = false)
+    private ExamFolderSizeMetrics examFolderSizeMetrics;
+
+    // Set once a migration pass finds no folder with embedded timetables; the fallbacks are skipped after that
+    private volatile boolean migrated;
+
+    // Fills in the timetables of each folder with one query for all of them
+    public void attach(Collection<ExamFolder> folders) {
+        if (folders.isEmpty()) {
+            return;
+        }
+        List<String> folderIds = new ArrayList<>();
+        for (ExamFolder folder : folders) {
+            folderIds.add(folder.getId());
+        }
+        Map<String, List<Timetable>> byFolder = findByFolderIds(folderIds);
+        for (ExamFolder folder : folders) {
+            List<Timetable> timetables = byFolder.getOrDefault(folder.getId(), new ArrayList<>());
+            folder.setTimetables(timetables);
+            if (examFolderSizeMetrics != null) {
+                examFolderSizeMetrics.recordTimetableCount(timetables.size());
+            }
+        }
+    }
+
+    public List<Timetable> findByFolderId(String folderId) {
+        return findByFolderIds(List.of(folderId)).getOrDefault(folderId, new ArrayList<>());
+    }
+
+    public Map<String, List<Timetable>> findByFolderIds(Collection<String> folderIds) {
+        Query query = new Query(Criteria.where("folderId").in(folderIds)).with(FOLDER_ORDER);
+        Map<String, List<Timetable>> byFolder = new HashMap<>();
+        for (Timetable timetable : mongoTemplate.find(query, Timetable.class)) {
+            byFolder.computeIfAbsent(timetable.getFolderId(), id -> new ArrayList<>()).add(timetable);
+        }
+        for (EmbeddedTimetables folder : embedded(missing(folderIds, byFolder.keySet()))) {
+            byFolder.put(folder.getId(), nonNull(folder.getTimetables()));
+        }
+        return byFolder;
+    }
+
+    public Timetable findOne(String folderId, String timetableId) {
+        Query query = new Query(Criteria.where("_id").is(timetableId).and("folderId").is(folderId));
+        Timetable timetable = mongoTemplate.findOne(query, Timetable.class);
+        if (timetable != null) {
+            return timetable;
+        }
+        for (EmbeddedTimetables folder : embedded(List.of(folderId))) {
+            for (Timetable embedded : nonNull(folder.getTimetables())) {
+                if (timetableId.equals(embedded.getId())) {
+                    return embedded;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Timetable count per folder from the folder_position index, without loading any timetable
+    public Map<String, Integer> countByFolderIds(Collection<String> folderIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("folderId").in(folderIds)),
+                Aggregation.group("folderId").count().as("count"));
+        Map<String, Integer> counts = new HashMap<>();
+        for (Document count : mongoTemplate.aggregate(aggregation, Timetable.class, Document.class)) {
+            counts.put(count.get("_id").toString(), ((Number) count.get("count")).intValue());
+        }
+        for (EmbeddedTimetables folder : embedded(missing(folderIds, counts.keySet()))) {
+            counts.put(folder.getId(), nonNull(folder.getTimetables()).size());
+        }
+        return counts;
+    }
+
+    // Appends after the folder's existing timetables
+    public void insert(ExamFolder folder, List<Timetable> timetables) {
+        insertAll(List.of(folder), Map.of(folder.getId(), nonNull(timetables)));
+    }
+
+    public void insertAll(List<ExamFolder> folders, Map<String, List<Timetable>> timetablesByFolder) {
+        // Microseconds of the insert, so later additions sort after earlier ones and migrated
+        // timetables, numbered from 0, sort before all of them
+        long position = System.currentTimeMillis() * 1000;
+        List<Timetable> batch = new ArrayList<>();
+        for (ExamFolder folder : folders) {
+            for (Timetable timetable : nonNull(timetablesByFolder.get(folder.getId()))) {
+                timetableIdGenerator.assignIds(timetable);
+                timetable.setFolderId(folder.getId());
+                timetable.setUserId(folder.getUserId());
+                timetable.setPosition(position++);
+                batch.add(timetable);
+            }
+        }
+        if (!batch.isEmpty()) {
+            try {
+                mongoTemplate.insert(batch, Timetable.class);
+            } catch (DuplicateKeyException e) {
+                throw new TimetableIdInUseException("A timetable id is already in use by another folder", e);
+            }
+        }
+    }
+
+    // Writes the new set over the old one by id, then removes the timetables the new set left out, so a
+    // failure part way leaves the folder with both sets' timetables rather than with none. Ids another
+    // folder holds are replaced first, as the migration does.
+    public void replaceAll(ExamFolder folder, List<Timetable> timetables) {
+        List<Timetable> replacements = nonNull(timetables);
+        Set<String> taken = idsTakenElsewhere(folder.getId(), replacements);
+        Set<String> seen = new HashSet<>();
+        List<String> ids = new ArrayList<>();
+        long position = System.currentTimeMillis() * 1000;
+        BulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Timetable.class);
+        for (Timetable timetable : replacements) {
+            if (timetable.getId() != null && (taken.contains(timetable.getId()) || !seen.add(timetable.getId()))) {
+                timetable.setId(null);
+            }
+            timetableIdGenerator.assignIds(timetable);
+            timetable.setFolderId(folder.getId());
+            timetable.setUserId(folder.getUserId());
+            timetable.setPosition(position++);
+            upserts.replaceOne(one(folder.getId(), timetable.getId()), timetable,
+                    FindAndReplaceOptions.options().upsert());
+            ids.add(timetable.getId());
+        }
+        if (!ids.isEmpty()) {
+            try {
+                upserts.execute();
+            } catch (DuplicateKeyException e) {
+                throw new TimetableIdInUseException("A timetable id was taken by another folder during the write", e);
+            }
+        }
+        mongoTemplate.remove(new Query(Criteria.where("folderId").is(folder.getId()).and("_id").nin(ids)),
+                Timetable.class);
+    }
+
+    // Writes the editable fields of one timetable and returns it as it was, or null if the folder holds no
+    // such timetable; the match is the existence check. The creation date is kept unless one is supplied,
+    // and updatedAt is the timetable's own, so restore() can tell this write from a later one.
+    public Timetable replace(String folderId, String timetableId, Timetable updated) {
+        Update update = new Update()
+                .set("tableName", updated.getTableName())
+                .set("startDate", updated.getStartDate())
+                .set("endDate", updated.getEndDate())
+                .set("dayGap", updated.getDayGap())
+                .set("timetable", updated.getTimetable())
+                .set("updatedAt", updated.getUpdatedAt() != null ? updated.getUpdatedAt() : LocalDateTime.now());
+        if (updated.getCreatedAt() != null) {
+            update.set("createdAt", updated.getCreatedAt());
+        }
+        Query query = one(folderId, timetableId);
+        FindAndModifyOptions previous = FindAndModifyOptions.options().returnNew(false);
+        Timetable replaced = mongoTemplate.findAndModify(query, update, previous, Timetable.class);
+        if (replaced == null && migrateEmbedded(folderId)) {
+            replaced = mongoTemplate.findAndModify(query, update, previous, Timetable.class);
+        }
+        return replaced;
+    }
+
+    // Puts back a timetable a write replaced, unless something has written it since that write
+    public void restore(Timetable previous, LocalDateTime writtenAt) {
+        Query query = new Query(Criteria.where("_id").is(previous.getId()).and("updatedAt").is(writtenAt));
+        mongoTemplate.findAndReplace(query, previous);
+    }
+
+    // Applies the patch in place, stamped with patchedAt for restore(), and returns the timetable as it was,
+    // or null if the timetable, or a day or session the patch writes into, does not exist
+    public Timetable patch(String folderId, String timetableId, TimetablePatch patch, LocalDateTime patchedAt) {
+        Query query = one(folderId, timetableId);
+        for (Criteria guard : patch.guards()) {
+            query.addCriteria(guard);
+        }
+        Update update = patch.update().set("updatedAt", patchedAt);
+        FindAndModifyOptions previous = FindAndModifyOptions.options().returnNew(false);
+        Timetable patched = mongoTemplate.findAndModify(query, update, previous, Timetable.class);
+        if (patched == null && migrateEmbedded(folderId)) {
+            patched = mongoTemplate.findAndModify(query, update, previous, Timetable.class);
+        }
+        return patched;
+    }
+
+    // The removed timetable, or null if the folder holds no such timetable
+    public Timetable remove(String folderId, String timetableId) {
+        Query query = one(folderId, timetableId);
+        Timetable removed = mongoTemplate.findAndRemove(query, Timetable.class);
+        if (removed == null && migrateEmbedded(folderId)) {
+            removed = mongoTemplate.findAndRemove(query, Timetable.class);
+        }
+        return removed;
+    }
+
+    // Puts back a timetable remove() took
+    public void reinsert(Timetable removed) {
+        try {
+            mongoTemplate.insert(removed);
+        } catch (DuplicateKeyException e) {
+            // already back
+        }
+    }
+
+    public void deleteByFolderId(String folderId) {
+        mongoTemplate.remove(new Query(Criteria.where("folderId").is(folderId)), Timetable.class);
+    }
+
+    public boolean isMigrated() {
+        return migrated;
+    }
+
+    void markMigrated() {
+        migrated = true;
+    }
+
+    // Moves a folder's embedded timetables into the collection before a write touches them
+    public void migrate(String folderId) {
+        migrateEmbedded(folderId);
+    }
+
+    // Whether the folder still embedded its timetables; a write that found nothing retries if so
+    private boolean migrateEmbedded(String folderId) {
+        List<EmbeddedTimetables> embedded = embedded(List.of(folderId));
+        for (EmbeddedTimetables folder : embedded) {
+            migrate(folder);
+        }
+        return !embedded.isEmpty();
+    }
+
+    // Copies are inserted only where none exists, so a rerun or a concurrent migration of the same folder
+    // cannot overwrite an edit made since. The array is then dropped if the folder is unchanged; a folder
+    // that changed keeps it and is retried, with the copies already in place.
+    boolean migrate(EmbeddedTimetables folder) {
+        List<Timetable> timetables = nonNull(folder.getTimetables());
+        if (!timetables.isEmpty()) {
+            Set<String> taken = idsTakenElsewhere(folder.getId(), timetables);
+            Set<String> seen = new HashSet<>();
+            List<Pair<Query, Update>> upserts = new ArrayList<>();
+            for (int i = 0; i < timetables.size(); i++) {
+                Timetable timetable = timetables.get(i);
+                // Embedded ids only had to be unique within their folder; as _id they must be unique overall
+                if (timetable.getId() != null && (taken.contains(timetable.getId()) || !seen.add(timetable.getId()))) {
+                    timetable.setId(null);
+                }
+                timetableIdGenerator.assignIds(timetable);
+                timetable.setFolderId(folder.getId());
+                timetable.setUserId(folder.getUserId());
+                timetable.setPosition((long) i);
+                Document document = new Document();
+                mongoTemplate.getConverter().write(timetable, document);
+                document.remove("_id");
+                upserts.add(Pair.of(new Query(Criteria.where("_id").is(timetable.getId())),
+                        Update.fromDocument(new Document("$setOnInsert", document))));
+            }
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Timetable.class).upsert(upserts).execute();
+        }
+        Query unchanged = new Query(Criteria.where("_id").is(folder.getId()).and("version").is(folder.getVersion()));
+        boolean done = mongoTemplate.updateFirst(unchanged, new Update().unset("timetables"), EmbeddedTimetables.class)
+                .getModifiedCount() > 0;
+        examFolderCache.invalidateFolder(folder.getId());
+        examFolderCache.invalidateUser(folder.getUserId());
+        return done;
+    }
+
+    private Set<String> idsTakenElsewhere(String folderId, List<Timetable> timetables) {
+        List<String> ids = new ArrayList<>();
+        for (Timetable timetable : timetables) {
+            if (timetable.getId() != null) {
+                ids.add(timetable.getId());
+            }
+        }
+        Set<String> taken = new HashSet<>();
+        if (ids.isEmpty()) {
+            return taken;
+        }
+        Query query = new Query(Criteria.where("_id").in(ids).and("folderId").ne(folderId));
+        query.fields().include("_id");
+        for (Timetable timetable : mongoTemplate.find(query, Timetable.class)) {
+            taken.add(timetable.getId());
+        }
+        return taken;
+    }
+
+    List<EmbeddedTimetables> findEmbedded(int limit, String afterId) {
+        Criteria pending = Criteria.where("timetables").exists(true);
+        if (afterId != null) {
+            pending.and("_id").gt(afterId);
+        }
+        Query query = new Query(pending).with(Sort.by("id")).limit(limit);
+        return mongoTemplate.find(query, EmbeddedTimetables.class);
+    }
+
+    private static Query one(String folderId, String timetableId) {
+        return new Query(Criteria.where("_id").is(timetableId).and("folderId").is(folderId));
+    }
+
+    private List<EmbeddedTimetables> embedded(Collection<String> folderIds) {
+        if (migrated || folderIds.isEmpty()) {
+            return List.of();
+        }
+        Query query = new Query(Criteria.where("_id").in(folderIds).and("timetables").exists(true));
+        return mongoTemplate.find(query, EmbeddedTimetables.class);
+    }
+
+    // Folders with nothing in the collection: either empty or not migrated yet
+    private static List<String> missing(Collection<String> folderIds, Collection<String> found) {
+        List<String> missing = new ArrayList<>();
+        for (String folderId : folderIds) {
+            if (!found.contains(folderId)) {
+                missing.add(folderId);
+            }
+        }
+        return missing;
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : new ArrayList<>();
+    }
+}
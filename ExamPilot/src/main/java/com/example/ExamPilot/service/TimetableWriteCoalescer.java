@@ -0,0 +1,306 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Holds whole-timetable updates for a short window and then writes each edited timetable once, so a burst
+// of edits to one timetable costs one Mongo update instead of one per edit. An edit is acknowledged with
+// the folder as it will be once written, version included, so ?version checks keep working through a
+// burst. ExamFolderService answers reads of the folder by id from that projection, and flushes before
+// anything wider reads or another write changes the folder.
+//
+// Every write expects the version the previous one left. If the folder was changed some other way in the
+// meantime, the held edits are dropped and reported rather than written over that change; if a write
+// fails, the rest of the batch is kept, still answering reads, and retried after another window, up to
+// MAX_ATTEMPTS times. Each write carries the batch's write id, so a retry of a write that was applied but
+// whose reply was lost finds its own version bump and is taken as written rather than as a conflict.
+public class TimetableWriteCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(TimetableWriteCoalescer.class);
+
+    static final int MAX_ATTEMPTS = 5;
+
+    // The update the edits would each have made: the folder as written, or null if the folder or the
+    // timetable no longer exists. A version conflict throws OptimisticLockingFailureException, and a write
+    // that could not be made throws too, so the edit is retried rather than lost. A folder already at
+    // expectedVersion + 1 by a write with the same writeId counts as expectedVersion.
+    interface Writer {
+        ExamFolder write(String folderId, String timetableId, Timetable timetable, Long expectedVersion,
+                         String writeId);
+    }
+
+    private final long windowMillis;
+    private final Function<String, ExamFolder> loader;
+    private final Writer writer;
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    TimetableWriteCoalescer(long windowMillis, Function<String, ExamFolder> loader, Writer writer) {
+        this.windowMillis = windowMillis;
+        this.loader = loader;
+        this.writer = writer;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timetable-write-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The folder as it will be written, or null if the folder or the timetable does not exist
+    ExamFolder submit(String folderId, String timetableId, Timetable timetable, Long expectedVersion) {
+        while (true) {
+            Batch batch = batches.computeIfAbsent(folderId, Batch::new);
+            ExamFolder current = batch.loaded;
+            if (current == null) {
+                // Read without the lock, so a flush of this folder does not wait on it
+                current = loader.apply(folderId);
+            }
+            batch.lock.lock();
+            try {
+                if (batch.closed) {
+                    // Flushed while this edit waited; the next batch starts from what was written
+                    continue;
+                }
+                if (batch.loaded == null) {
+                    if (current == null) {
+                        close(batch);
+                        return null;
+                    }
+                    batch.loaded = current;
+                    batch.baseVersion = current.getVersion();
+                }
+                ExamFolder projected = batch.projection != null ? batch.projection : batch.loaded;
+                if (expectedVersion != null && !expectedVersion.equals(projected.getVersion())) {
+                    closeIfEmpty(batch);
+                    throw new OptimisticLockingFailureException(
+                            "Exam folder " + folderId + " was modified concurrently (expected version " + expectedVersion + ")");
+                }
+                List<Timetable> timetables = new ArrayList<>(projected.getTimetables());
+                int index = indexOf(timetables, timetableId);
+                if (index < 0) {
+                    closeIfEmpty(batch);
+                    return null;
+                }
+                if (timetable.getCreatedAt() == null) {
+                    timetable.setCreatedAt(timetables.get(index).getCreatedAt());
+                }
+                timetable.setUpdatedAt(LocalDateTime.now());
+                timetables.set(index, timetable);
+
+                if (batch.edits.isEmpty()) {
+                    schedule(batch);
+                }
+                // Each timetable still to be written is one write, and so one version
+                boolean newWrite = batch.edits.put(timetableId, timetable) == null;
+                long version = (projected.getVersion() != null ? projected.getVersion() : 0L) + (newWrite ? 1 : 0);
+                if (newWrite) {
+                    batch.writes++;
+                }
+                batch.editCount++;
+                batch.projection = projection(projected, timetables, version);
+                return batch.projection;
+            } finally {
+                batch.lock.unlock();
+            }
+        }
+    }
+
+    // Null unless the folder has edits waiting
+    ExamFolder projection(String folderId) {
+        Batch batch = batches.get(folderId);
+        return batch != null ? batch.projection : null;
+    }
+
+    void flush(String folderId) {
+        Batch batch = batches.get(folderId);
+        if (batch != null) {
+            flush(batch);
+        }
+    }
+
+    void flushUser(String userId) {
+        for (Batch batch : batches.values()) {
+            ExamFolder projected = batch.projection;
+            if (projected != null && userId.equals(projected.getUserId())) {
+                flush(batch);
+            }
+        }
+    }
+
+    // On shutdown: writes everything held and stops the timer
+    void close() {
+        scheduler.shutdownNow();
+        for (Batch batch : batches.values()) {
+            flush(batch);
+        }
+    }
+
+    // Timetables are written in the order they were first edited, each expecting the version the one
+    // before it left
+    private void flush(Batch batch) {
+        batch.lock.lock();
+        try {
+            if (batch.closed) {
+                return;
+            }
+            Iterator<Map.Entry<String, Timetable>> edits = batch.edits.entrySet().iterator();
+            while (edits.hasNext()) {
+                Map.Entry<String, Timetable> edit = edits.next();
+                ExamFolder written;
+                try {
+                    written = writer.write(batch.folderId, edit.getKey(), edit.getValue(), batch.baseVersion,
+                            batch.writeId);
+                } catch (OptimisticLockingFailureException e) {
+                    dropped.addAndGet(batch.edits.size());
+                    log.warn("Dropping held edits of timetables {} in folder {}: the folder was changed after "
+                            + "version {} was read", batch.edits.keySet(), batch.folderId, batch.baseVersion);
+                    close(batch);
+                    return;
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    if (++batch.failedAttempts >= MAX_ATTEMPTS) {
+                        dropped.addAndGet(batch.edits.size());
+                        log.error("Dropping held edits of timetables {} in folder {}: not written after {} attempts",
+                                batch.edits.keySet(), batch.folderId, MAX_ATTEMPTS, e);
+                        close(batch);
+                    } else if (schedule(batch)) {
+                        log.warn("Held edits of timetables {} in folder {} could not be written, retrying: {}",
+                                batch.edits.keySet(), batch.folderId, e.getMessage());
+                    } else {
+                        dropped.addAndGet(batch.edits.size());
+                        log.error("Held edits of timetables {} in folder {} were not written before shutdown",
+                                batch.edits.keySet(), batch.folderId, e);
+                        close(batch);
+                    }
+                    return;
+                }
+                edits.remove();
+                batch.failedAttempts = 0;
+                if (written == null) {
+                    dropped.incrementAndGet();
+                    log.warn("Dropping held edit of timetable {} in folder {}: it no longer exists",
+                            edit.getKey(), batch.folderId);
+                } else {
+                    flushed.incrementAndGet();
+                    batch.baseVersion = written.getVersion();
+                }
+            }
+            coalesced.addAndGet(batch.editCount - batch.writes);
+            // Only now, so reads keep seeing the projection until it is all in Mongo
+            close(batch);
+        } finally {
+            batch.lock.unlock();
+        }
+    }
+
+    // False once shut down
+    private boolean schedule(Batch batch) {
+        try {
+            scheduler.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void close(Batch batch) {
+        batch.closed = true;
+        batches.remove(batch.folderId, batch);
+    }
+
+    private void closeIfEmpty(Batch batch) {
+        if (batch.edits.isEmpty()) {
+            close(batch);
+        }
+    }
+
+    private static int indexOf(List<Timetable> timetables, String timetableId) {
+        for (int i = 0; i < timetables.size(); i++) {
+            if (timetableId.equals(timetables.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // A new folder object each time, so a projection already handed out never changes underneath its reader
+    private static ExamFolder projection(ExamFolder folder, List<Timetable> timetables, long version) {
+        ExamFolder projected = new ExamFolder(folder.getUserId(), folder.getFolderName(), folder.getDescription());
+        projected.setId(folder.getId());
+        projected.setCreatedAt(folder.getCreatedAt());
+        projected.setUpdatedAt(LocalDateTime.now());
+        projected.setVersion(version);
+        projected.setTimetables(timetables);
+        return projected;
+    }
+
+    // Edits saved by coalescing: held edits that did not need a write of their own
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    // Write attempts that failed and were retried
+    public long getFailed() {
+        return failed.get();
+    }
+
+    // Acknowledged edits never written, because the folder changed or went away first
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getPendingFolders() {
+        return batches.size();
+    }
+
+    private static class Batch {
+
+        private final String folderId;
+        private final ReentrantLock lock = new ReentrantLock();
+        // Edits not written yet
+        private final Map<String, Timetable> edits = new LinkedHashMap<>();
+        // As read when the batch started, and as it will be written; the latter only once it holds an edit
+        private volatile ExamFolder loaded;
+        private volatile ExamFolder projection;
+        // The version the next write expects, and what marks the bumps this batch made
+        private Long baseVersion;
+        private final String writeId = UUID.randomUUID().toString();
+        // Failed writes since the last one that went through
+        private int failedAttempts;
+        private int editCount;
+        private int writes;
+        private boolean closed;
+
+        Batch(String folderId) {
+            this.folderId = folderId;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Issues and verifies HS256 JWTs. Verification needs only the configured keys,
+// so any node can check a token without a database or session lookup.
+@Service
+public class TokenService {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.jwt.secret}")
+    private String secret;
+
+    // Published in each token's header to pick the verification key; opaque, so it says nothing about the secret
+    @Value("${app.jwt.key-id:1}")
+    private String keyId;
+
+    // keyId:secret pairs rotated out of signing; tokens signed with them stay valid until they expire
+    @Value("${app.jwt.previous-secrets:}")
+    private String previousSecrets;
+
+    @Value("${app.jwt.expiration}")
+    private long expirationSeconds;
+
+    private final Map<String, byte[]> keys = new HashMap<>();
+
+    @PostConstruct
+    public void initializeKeys() {
+        keys.put(keyId, secret.getBytes(StandardCharsets.UTF_8));
+        for (String previous : previousSecrets.split(",")) {
+            if (previous.trim().isEmpty()) {
+                continue;
+            }
+            int separator = previous.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("app.jwt.previous-secrets entries must be keyId:secret");
+            }
+            String previousKeyId = previous.substring(0, separator).trim();
+            if (keys.containsKey(previousKeyId)) {
+                throw new IllegalStateException("JWT key id " + previousKeyId + " is configured twice");
+            }
+            keys.put(previousKeyId, previous.substring(separator + 1).trim().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public String issueToken(User user) {
+        long now = System.currentTimeMillis() / 1000;
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", "HS256");
+        header.put("typ", "JWT");
+        header.put("kid", keyId);
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", user.getUsername());
+        claims.put("uid", user.getId());
+        claims.put("role", user.getRole());
+        claims.put("iat", now);
+        claims.put("exp", now + expirationSeconds);
+
+        try {
+            String signingInput = ENCODER.encodeToString(objectMapper.writeValueAsBytes(header))
+                    + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return signingInput + "." + ENCODER.encodeToString(sign(keys.get(keyId), signingInput));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to issue token: " + e.getMessage(), e);
+        }
+    }
+
+    // Returns the token's claims, or null if it is malformed, forged, signed with an unknown key or expired
+    public Map<String, Object> validateToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            Map<String, Object> header = objectMapper.readValue(DECODER.decode(parts[0]),
+                    new TypeReference<Map<String, Object>>() {});
+            if (!"HS256".equals(header.get("alg"))) {
+                return null;
+            }
+            byte[] key = keys.get(String.valueOf(header.get("kid")));
+            if (key == null) {
+                return null;
+            }
+            byte[] expected = sign(key, parts[0] + "." + parts[1]);
+            if (!MessageDigest.isEqual(expected, DECODER.decode(parts[2]))) {
+                return null;
+            }
+            Map<String, Object> claims = objectMapper.readValue(DECODER.decode(parts[1]),
+                    new TypeReference<Map<String, Object>>() {});
+            Object exp = claims.get("exp");
+            if (!(exp instanceof Number) || ((Number) exp).longValue() < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return claims;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public long getExpirationSeconds() {
+        return expirationSeconds;
+    }
+
+    private byte[] sign(byte[] key, String signingInput) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+}
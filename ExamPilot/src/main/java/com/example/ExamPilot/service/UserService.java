@@ -2,41 +2,116 @@ package com.example.ExamPilot.service;
 
 import com.example.ExamPilot.model.User;
 import com.example.ExamPilot.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 
+import java.util.List;
+import java.util.regex.Pattern;
+
 @Service
+@Timed(value = "exampilot.service", histogram = true)
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
+    private static final int MIGRATION_PAGE_SIZE = 100;
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$.{53}$");
+
     @Autowired(required = false)
     private UserRepository userRepository;
 
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MongoBulkhead mongoBulkhead;
+
+    @Autowired
+    private DatabaseErrors databaseErrors;
+
     @Value("${app.admin.username}")
     private String adminUsername;
 
     @Value("${app.admin.password}")
     private String adminPassword;
 
+    @Value("${app.auth.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${app.auth.cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Off in the fast-startup profile: the admin user is then seeded by the first call that needs users
+    @Value("${app.admin.seed-at-startup:true}")
+    private boolean seedAdminAtStartup;
+
+    private CredentialCache credentialCache;
+    private volatile boolean adminSeeded;
+
     @PostConstruct
-    public void initializeAdminUser() {
+    public void init() {
+        credentialCache = new CredentialCache(cacheMaxEntries, cacheTtlSeconds * 1000);
+        if (seedAdminAtStartup) {
+            seedAdminUser();
+        }
+    }
+
+    // Tried once, like the startup seeding; a later call does not retry if the database was down
+    private void seedAdminUser() {
+        if (adminSeeded) {
+            return;
+        }
+        synchronized (this) {
+            if (adminSeeded) {
+                return;
+            }
+            adminSeeded = true;
+            initializeAdminUser();
+        }
+    }
+
+    private void initializeAdminUser() {
         if (userRepository == null) {
-            System.out.println("MongoDB not available - skipping admin user initialization");
+            log.info("MongoDB not available - skipping admin user initialization");
             return;
         }
-        
+
         try {
             // Create admin user if it doesn't exist
             if (!userRepository.existsByUsername(adminUsername)) {
-                User adminUser = new User(adminUsername, adminPassword);
+                User adminUser = new User(adminUsername, passwordEncoder.encode(adminPassword));
                 adminUser.setRole("ADMIN");
                 userRepository.save(adminUser);
-                System.out.println("Admin user created: " + adminUsername);
+                log.info("Admin user created: {}", adminUsername);
             }
+            migratePlaintextPasswords();
         } catch (Exception e) {
-            System.err.println("Failed to initialize admin user (database not available): " + e.getMessage());
+            log.error("Failed to initialize admin user (database not available): {}", e.getMessage());
+        }
+    }
+
+    // Users stored before hashing was introduced still hold plaintext passwords. Only those are read, a page
+    // at a time; each page is hashed and saved, so it drops out of the query and the next read is page 0 again.
+    private void migratePlaintextPasswords() {
+        int migrated = 0;
+        List<User> page;
+        while (!(page = userRepository.findPlaintextPasswords(PageRequest.of(0, MIGRATION_PAGE_SIZE))).isEmpty()) {
+            for (User user : page) {
+                user.setPassword(passwordEncoder.encode(user.getPassword()));
+            }
+            userRepository.saveAll(page);
+            migrated += page.size();
+        }
+        if (migrated > 0) {
+            log.info("Hashed {} plaintext user password(s)", migrated);
         }
     }
 
@@ -45,29 +120,66 @@ public class UserService {
             // Fallback authentication when database is not available
             return adminUsername.equals(username) && adminPassword.equals(password);
         }
-        
-        try {
+
+        if (credentialCache.verify(username, password) != null) {
+            return true;
+        }
+        seedAdminUser();
+
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
             User user = userRepository.findByUsername(username).orElse(null);
-            if (user != null && user.getPassword().equals(password)) {
+            if (user != null && passwordMatches(user, password)) {
+                credentialCache.put(user, password);
                 return true;
             }
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error during authentication: " + e.getMessage());
+            databaseErrors.record(e);
             // Fallback to admin credentials
             return adminUsername.equals(username) && adminPassword.equals(password);
         }
         return false;
     }
 
+    private boolean passwordMatches(User user, String password) {
+        String stored = user.getPassword();
+        if (stored == null || password == null) {
+            return false;
+        }
+        if (isHashed(stored)) {
+            return passwordEncoder.matches(password, stored);
+        }
+        // Not yet migrated: compare once, then upgrade to a hash
+        if (stored.equals(password)) {
+            user.setPassword(passwordEncoder.encode(password));
+            userRepository.save(user);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isHashed(String password) {
+        return BCRYPT_HASH.matcher(password).matches();
+    }
+
     public User findByUsername(String username) {
         if (userRepository == null) {
             return null;
         }
-        
-        try {
+
+        User cached = credentialCache.lookup(username);
+        if (cached != null) {
+            return cached;
+        }
+        seedAdminUser();
+
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
             return userRepository.findByUsername(username).orElse(null);
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
             return null;
         }
     }
@@ -76,17 +188,58 @@ public class UserService {
         if (userRepository == null) {
             throw new RuntimeException("Database not available");
         }
-        
-        try {
+        seedAdminUser();
+
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
             if (userRepository.existsByUsername(username)) {
                 throw new RuntimeException("Username already exists");
             }
-            
-            User user = new User(username, password);
-            return userRepository.save(user);
+
+            User user = new User(username, passwordEncoder.encode(password));
+            User saved = userRepository.save(user);
+            credentialCache.invalidate(username);
+            return saved;
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Database error: " + e.getMessage());
+            databaseErrors.record(e);
             throw new RuntimeException("Failed to create user: " + e.getMessage());
         }
     }
+
+    public User updatePassword(String username, String newPassword) {
+        if (userRepository == null) {
+            throw new RuntimeException("Database not available");
+        }
+        seedAdminUser();
+
+        try (MongoBulkhead.Permit permit = mongoBulkhead.acquire()) {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            user.setPassword(passwordEncoder.encode(newPassword));
+            User saved = userRepository.save(user);
+            credentialCache.invalidate(username);
+            return saved;
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (Exception e) {
+            databaseErrors.record(e);
+            throw new RuntimeException("Failed to update password: " + e.getMessage());
+        }
+    }
+
+    // Who a just-authenticated user is when the database cannot say: only the configured admin can have
+    // authenticated without it, so anyone else gets null
+    public User fallbackUser(String username) {
+        if (!adminUsername.equals(username)) {
+            return null;
+        }
+        User admin = new User(username, null);
+        admin.setRole("ADMIN");
+        return admin;
+    }
+
+    public CredentialCache getCredentialCache() {
+        return credentialCache;
+    }
 }
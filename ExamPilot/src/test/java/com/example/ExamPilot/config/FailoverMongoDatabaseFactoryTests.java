@@ -0,0 +1,155 @@
+package com.example.ExamPilot.config;
+
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailoverMongoDatabaseFactoryTests {
+
+	private static final String PRIMARY = "mongodb://primary:27017";
+	private static final String STANDBY = "mongodb://standby:27017";
+
+	// Deployments that answer a ping, and how many clients each got
+	private final Set<String> up = new HashSet<>(Set.of(PRIMARY, STANDBY));
+	private final Map<String, Integer> created = new HashMap<>();
+	private final Set<String> closed = new HashSet<>();
+
+	@Test
+	void startsOnTheFirstDeploymentThatAnswers() {
+		up.remove(PRIMARY);
+		FailoverMongoDatabaseFactory factory = factory(3);
+		factory.selectAtStartup();
+
+		assertEquals(1, factory.getActiveIndex());
+		assertEquals(STANDBY + "/exam_scheduler", factory.getMongoDatabase().getName());
+	}
+
+	@Test
+	void switchesOnlyAfterTheThresholdAndSwitchesBack() {
+		FailoverMongoDatabaseFactory factory = factory(3);
+		factory.selectAtStartup();
+		up.remove(PRIMARY);
+
+		factory.checkHealth();
+		factory.checkHealth();
+		assertEquals(0, factory.getActiveIndex());
+		factory.checkHealth();
+		assertEquals(1, factory.getActiveIndex());
+		assertEquals(STANDBY + "/exam_scheduler", factory.getMongoDatabase().getName());
+
+		up.add(PRIMARY);
+		factory.checkHealth();
+		assertEquals(0, factory.getActiveIndex());
+		assertEquals(2, factory.getFailovers());
+		// One client, and so one pool, per deployment however often it switches
+		assertEquals(Map.of(PRIMARY, 1, STANDBY, 1), created);
+	}
+
+	@Test
+	void staysPutWhenNoOtherDeploymentAnswers() {
+		FailoverMongoDatabaseFactory factory = factory(1);
+		factory.selectAtStartup();
+		up.clear();
+
+		factory.checkHealth();
+
+		assertEquals(0, factory.getActiveIndex());
+		assertEquals(0, factory.getFailovers());
+	}
+
+	@Test
+	void failoverClientFollowsTheActiveDeployment() {
+		FailoverMongoDatabaseFactory factory = factory(1);
+		factory.selectAtStartup();
+		MongoClient client = factory.getFailoverClient();
+		assertEquals(PRIMARY + "/other", client.getDatabase("other").getName());
+
+		up.remove(PRIMARY);
+		factory.checkHealth();
+		assertEquals(STANDBY + "/other", client.getDatabase("other").getName());
+
+		// Held by whoever injected it, but the factory owns the real clients
+		client.close();
+		assertTrue(closed.isEmpty());
+		factory.destroy();
+		assertEquals(Set.of(PRIMARY, STANDBY), closed);
+	}
+
+	@Test
+	void reactiveFactoryFollowsTheBlockingOne() {
+		FailoverMongoDatabaseFactory factory = factory(1);
+		factory.selectAtStartup();
+		Map<String, Integer> reactiveCreated = new HashMap<>();
+		FailoverReactiveMongoDatabaseFactory reactive = new FailoverReactiveMongoDatabaseFactory(factory, uri -> {
+			reactiveCreated.merge(uri, 1, Integer::sum);
+			return (com.mongodb.reactivestreams.client.MongoClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] {com.mongodb.reactivestreams.client.MongoClient.class},
+					(client, method, args) -> switch (method.getName()) {
+						case "getDatabase" -> reactiveDatabase(uri + "/" + args[0]);
+						case "close" -> null;
+						default -> throw new UnsupportedOperationException(method.getName());
+					});
+		}, "exam_scheduler");
+		assertEquals(PRIMARY + "/exam_scheduler", reactive.getMongoDatabase().block().getName());
+
+		up.remove(PRIMARY);
+		factory.checkHealth();
+		assertEquals(STANDBY + "/exam_scheduler", reactive.getMongoDatabase().block().getName());
+		assertEquals(STANDBY + "/exam_scheduler", reactive.getFailoverClient().getDatabase("exam_scheduler").getName());
+		assertEquals(Map.of(PRIMARY, 1, STANDBY, 1), reactiveCreated);
+	}
+
+	private FailoverMongoDatabaseFactory factory(int failureThreshold) {
+		return new FailoverMongoDatabaseFactory(List.of(PRIMARY, STANDBY), this::client, "exam_scheduler",
+				failureThreshold);
+	}
+
+	// Answers getDatabase and close; databases answer getName and ping, and fail the ping while down
+	private MongoClient client(String uri) {
+		created.merge(uri, 1, Integer::sum);
+		return (MongoClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {MongoClient.class},
+				(client, method, args) -> switch (method.getName()) {
+					case "getDatabase" -> database(uri, (String) args[0]);
+					case "close" -> closed.add(uri);
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private MongoDatabase database(String uri, String name) {
+		return (MongoDatabase) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {MongoDatabase.class},
+				(database, method, args) -> switch (method.getName()) {
+					case "getName" -> uri + "/" + name;
+					case "runCommand" -> {
+						if (!up.contains(uri)) {
+							throw new MongoTimeoutException("Timed out after 5000 ms");
+						}
+						yield new Document("ok", 1);
+					}
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private static com.mongodb.reactivestreams.client.MongoDatabase reactiveDatabase(String name) {
+		return (com.mongodb.reactivestreams.client.MongoDatabase) Proxy.newProxyInstance(
+				FailoverMongoDatabaseFactoryTests.class.getClassLoader(),
+				new Class<?>[] {com.mongodb.reactivestreams.client.MongoDatabase.class},
+				(database, method, args) -> {
+					if (!method.getName().equals("getName")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					return name;
+				});
+	}
+}
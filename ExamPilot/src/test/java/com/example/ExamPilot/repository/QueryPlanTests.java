@@ -0,0 +1,268 @@
+package com.example.ExamPilot.repository;
+
+import com.example.ExamPilot.config.MongoIndexConfig;
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.ExamFolderSummary;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.TimetablePatchOperation;
+import com.example.ExamPilot.model.User;
+import com.example.ExamPilot.service.DatabaseErrors;
+import com.example.ExamPilot.service.ExamFolderCache;
+import com.example.ExamPilot.service.ExamFolderService;
+import com.example.ExamPilot.service.LocalFolderStore;
+import com.example.ExamPilot.service.MongoBulkhead;
+import com.example.ExamPilot.service.TimetableIdGenerator;
+import com.example.ExamPilot.service.TimetableStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs every repository and service query against a real mongod, captures the command the
+// driver sends, and asserts from explain() that it is served by an index and never a COLLSCAN.
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanTests {
+
+	private static final Set<String> QUERY_COMMANDS =
+			Set.of("find", "aggregate", "count", "distinct", "delete", "update", "findAndModify");
+
+	@Container
+	static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+	private static final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+	private static MongoClient client;
+	private static MongoTemplate mongoTemplate;
+
+	private ExamFolderRepository examFolderRepository;
+	private UserRepository userRepository;
+	private ExamFolderService examFolderService;
+	private TimetableStore timetableStore;
+
+	@BeforeAll
+	static void connect() {
+		MongoClientSettings settings = MongoClientSettings.builder()
+				.applyConnectionString(new ConnectionString(mongo.getReplicaSetUrl("query_plans")))
+				.addCommandListener(new CommandListener() {
+					@Override
+					public void commandStarted(CommandStartedEvent event) {
+						if (QUERY_COMMANDS.contains(event.getCommandName())) {
+							commands.add(event.getCommand().clone());
+						}
+					}
+				})
+				.build();
+		client = MongoClients.create(settings);
+		mongoTemplate = new MongoTemplate(client, "query_plans");
+
+		MongoIndexConfig indexConfig = new MongoIndexConfig();
+		ReflectionTestUtils.setField(indexConfig, "mongoTemplate", mongoTemplate);
+		indexConfig.ensureIndexes();
+
+		for (int i = 0; i < 20; i++) {
+			ExamFolder folder = new ExamFolder("user-" + (i % 4), "Folder " + i, "Seed folder");
+			folder.setVersion(0L);
+			Timetable.TimetableDay day = new Timetable.TimetableDay();
+			day.setDate(LocalDate.of(2025, 5, 1).plusDays(i));
+			Timetable timetable = new Timetable();
+			timetable.setId("tt-" + i);
+			timetable.setTableName("Folder " + i);
+			timetable.setTimetable(List.of(day));
+			mongoTemplate.insert(folder);
+			timetable.setFolderId(folder.getId());
+			timetable.setUserId(folder.getUserId());
+			timetable.setPosition((long) i);
+			mongoTemplate.insert(timetable);
+		}
+		mongoTemplate.insert(new User("alice", "not-a-real-hash"));
+	}
+
+	@AfterAll
+	static void disconnect() {
+		if (client != null) {
+			client.close();
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+		examFolderRepository = factory.getRepository(ExamFolderRepository.class);
+		userRepository = factory.getRepository(UserRepository.class);
+
+		// A zero-weight cache stores nothing, so every service call reaches Mongo
+		examFolderService = new ExamFolderService();
+		ReflectionTestUtils.setField(examFolderService, "examFolderRepository", examFolderRepository);
+		ReflectionTestUtils.setField(examFolderService, "mongoTemplate", mongoTemplate);
+		ExamFolderCache examFolderCache = new ExamFolderCache();
+		ReflectionTestUtils.setField(examFolderService, "examFolderCache", examFolderCache);
+		TimetableIdGenerator idGenerator = new TimetableIdGenerator();
+		idGenerator.init();
+		ReflectionTestUtils.setField(examFolderService, "timetableIdGenerator", idGenerator);
+		timetableStore = new TimetableStore();
+		ReflectionTestUtils.setField(timetableStore, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(timetableStore, "timetableIdGenerator", idGenerator);
+		ReflectionTestUtils.setField(timetableStore, "examFolderCache", examFolderCache);
+		ReflectionTestUtils.setField(examFolderService, "timetableStore", timetableStore);
+		ReflectionTestUtils.setField(examFolderService, "objectMapper", new ObjectMapper());
+		MongoBulkhead bulkhead = new MongoBulkhead();
+		bulkhead.init();
+		ReflectionTestUtils.setField(examFolderService, "mongoBulkhead", bulkhead);
+		ReflectionTestUtils.setField(examFolderService, "databaseErrors", new DatabaseErrors(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(examFolderService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+		ReflectionTestUtils.setField(examFolderService, "localFolderStore", new LocalFolderStore());
+
+		commands.clear();
+	}
+
+	@Test
+	void findByUserIdUsesIndex() {
+		examFolderRepository.findByUserId("user-1");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void findByUserIdAndFolderNameUsesIndex() {
+		examFolderRepository.findByUserIdAndFolderName("user-1", "Folder 1");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void deleteByUserIdUsesIndex() {
+		examFolderRepository.deleteByUserId("user-without-folders");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void findByUsernameUsesIndex() {
+		userRepository.findByUsername("alice");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void existsByUsernameUsesIndex() {
+		userRepository.existsByUsername("alice");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void folderSummariesUseIndex() {
+		List<ExamFolderSummary> firstPage = examFolderService.getExamFolderSummaries("user-1", null, 2);
+		examFolderService.getExamFolderSummaries("user-1", examFolderService.encodeCursor(firstPage.get(1)), 2);
+		assertIndexedQueries();
+	}
+
+	@Test
+	void folderListingETagUsesIndex() {
+		examFolderService.getFolderListingETag("user-1");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void folderNameAllocationUsesIndex() {
+		Timetable timetable = new Timetable();
+		timetable.setTableName("Folder 2");
+		examFolderService.createFolderForTimetable("user-2", timetable);
+		assertIndexedQueries();
+	}
+
+	@Test
+	void examDateRangeUsesIndex() {
+		examFolderService.getExamDaysInRange("user-1", LocalDate.of(2025, 5, 5), LocalDate.of(2025, 5, 11));
+		examFolderService.getAllExamDays("user-1");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void timetableMutationsUseIndex() {
+		ExamFolder folder = examFolderRepository.findByUserIdAndFolderName("user-3", "Folder 3").orElseThrow();
+		Timetable timetable = new Timetable();
+		timetable.setTableName("Extra");
+		examFolderService.addTimetableToFolder(folder.getId(), timetable);
+		examFolderService.updateTimetableInFolder(folder.getId(), timetable.getId(), timetable, 1L);
+		examFolderService.patchTimetableInFolder(folder.getId(), "tt-3",
+				List.of(new TimetablePatchOperation("replace", "/timetable/0/day", "Monday")), null);
+		examFolderService.deleteTimetableFromFolder(folder.getId(), timetable.getId());
+		examFolderService.getExamFolderStamp(folder.getId());
+		examFolderService.getTimetableInFolder(folder.getId(), "tt-3");
+		assertIndexedQueries();
+	}
+
+	@Test
+	void timetableLookupsUseIndex() {
+		List<ExamFolder> folders = examFolderRepository.findByUserId("user-2");
+		List<String> folderIds = folders.stream().map(ExamFolder::getId).toList();
+		timetableStore.attach(folders);
+		timetableStore.countByFolderIds(folderIds);
+		timetableStore.findByFolderId(folderIds.get(0));
+		assertIndexedQueries();
+	}
+
+	private void assertIndexedQueries() {
+		assertFalse(commands.isEmpty(), "No query reached Mongo");
+		for (BsonDocument command : commands) {
+			Document plan = explain(command);
+			List<String> stages = new ArrayList<>();
+			collectStages(plan, stages);
+			assertFalse(stages.contains("COLLSCAN"),
+					() -> "COLLSCAN for " + command.toJson() + "\n" + plan.toJson());
+			assertTrue(stages.stream().anyMatch(QueryPlanTests::isIndexStage),
+					() -> "No index used for " + command.toJson() + "\n" + plan.toJson());
+		}
+	}
+
+	private Document explain(BsonDocument command) {
+		BsonDocument explained = new BsonDocument();
+		for (String key : command.keySet()) {
+			// Session, cluster time and $db are envelope fields, not part of the command to explain
+			if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+				explained.put(key, command.get(key));
+			}
+		}
+		return client.getDatabase("query_plans").runCommand(
+				new BsonDocument("explain", explained).append("verbosity", new BsonString("queryPlanner")));
+	}
+
+	private static void collectStages(Object node, List<String> stages) {
+		if (node instanceof Document document) {
+			Object stage = document.get("stage");
+			if (stage instanceof String name) {
+				stages.add(name);
+			}
+			document.values().forEach(value -> collectStages(value, stages));
+		} else if (node instanceof List<?> list) {
+			list.forEach(value -> collectStages(value, stages));
+		}
+	}
+
+	private static boolean isIndexStage(String stage) {
+		return stage.contains("IXSCAN") || stage.equals("IDHACK") || stage.startsWith("EXPRESS")
+				|| stage.equals("COUNT_SCAN") || stage.equals("DISTINCT_SCAN");
+	}
+}
@@ -0,0 +1,66 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.User;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CredentialCacheTests {
+
+	@Test
+	void hitsOnlyForTheCachedPassword() {
+		CredentialCache cache = new CredentialCache(10, 60_000);
+		assertNull(cache.verify("alice", "secret"));
+		cache.put(user("alice"), "secret");
+
+		User cached = cache.verify("alice", "secret");
+		assertNotNull(cached);
+		// The cached copy never carries the password hash
+		assertNull(cached.getPassword());
+		assertNull(cache.verify("alice", "wrong"));
+		assertNotNull(cache.lookup("alice"));
+		assertNull(cache.lookup("bob"));
+		// Lookups are counted apart from password checks
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1, cache.getLookupHits());
+		assertEquals(1, cache.getLookupMisses());
+	}
+
+	@Test
+	void invalidatedAndExpiredEntriesMiss() throws Exception {
+		CredentialCache cache = new CredentialCache(10, 60_000);
+		cache.put(user("alice"), "secret");
+		cache.invalidate("alice");
+		assertNull(cache.verify("alice", "secret"));
+
+		CredentialCache shortLived = new CredentialCache(10, 1);
+		shortLived.put(user("alice"), "secret");
+		Thread.sleep(5);
+		assertNull(shortLived.lookup("alice"));
+		assertEquals(1, shortLived.getEvictions());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		CredentialCache cache = new CredentialCache(2, 60_000);
+		cache.put(user("alice"), "a");
+		cache.put(user("bob"), "b");
+		cache.verify("alice", "a");
+		cache.put(user("carol"), "c");
+
+		assertEquals(2, cache.size());
+		assertNull(cache.lookup("bob"));
+		assertNotNull(cache.lookup("alice"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	private static User user(String username) {
+		User user = new User(username, "$2a$10$" + "x".repeat(53));
+		user.setId(username + "-id");
+		user.setRole("USER");
+		return user;
+	}
+}
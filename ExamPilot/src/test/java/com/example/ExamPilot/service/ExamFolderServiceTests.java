@@ -0,0 +1,240 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.TimetablePatchOperation;
+import com.example.ExamPilot.repository.ExamFolderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// ExamFolderService's single-timetable edits against RecordingMongoTemplate, wired as in
+// TimetableMutationBenchmark; the client is never connected to
+class ExamFolderServiceTests {
+
+	private MongoClient client;
+	private RecordingMongoTemplate mongoTemplate;
+	private ExamFolderCache examFolderCache;
+	private ExamFolderService examFolderService;
+	// Every repository call fails as if Mongo were unreachable
+	private boolean mongoDown;
+
+	@BeforeEach
+	void setUp() {
+		client = MongoClients.create("mongodb://localhost:1");
+		mongoTemplate = new RecordingMongoTemplate(client);
+
+		TimetableIdGenerator idGenerator = new TimetableIdGenerator();
+		idGenerator.init();
+		MongoBulkhead bulkhead = new MongoBulkhead();
+		bulkhead.init();
+		examFolderCache = new ExamFolderCache();
+		TimetableStore timetableStore = new TimetableStore();
+		ReflectionTestUtils.setField(timetableStore, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(timetableStore, "timetableIdGenerator", idGenerator);
+		ReflectionTestUtils.setField(timetableStore, "examFolderCache", examFolderCache);
+		timetableStore.markMigrated();
+
+		examFolderService = new ExamFolderService();
+		ReflectionTestUtils.setField(examFolderService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(examFolderService, "examFolderCache", examFolderCache);
+		ReflectionTestUtils.setField(examFolderService, "timetableStore", timetableStore);
+		ReflectionTestUtils.setField(examFolderService, "timetableIdGenerator", idGenerator);
+		ReflectionTestUtils.setField(examFolderService, "mongoBulkhead", bulkhead);
+		ReflectionTestUtils.setField(examFolderService, "databaseErrors", new DatabaseErrors(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(examFolderService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+		ReflectionTestUtils.setField(examFolderService, "localFolderStore", new LocalFolderStore());
+		ReflectionTestUtils.setField(examFolderService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+
+		ExamFolder folder = new ExamFolder("user-1", "Finals", null);
+		folder.setId("folder-1");
+		folder.setVersion(1L);
+		mongoTemplate.folders.put(folder.getId(), folder);
+		Timetable timetable = timetable("Original");
+		timetable.setFolderId("folder-1");
+		timetable.setUserId("user-1");
+		timetable.setPosition(0L);
+		mongoTemplate.timetables.put(timetable.getId(), timetable);
+	}
+
+	@AfterEach
+	void tearDown() {
+		client.close();
+	}
+
+	@Test
+	void updateWritesTheTimetableThenBumpsTheFolder() {
+		ExamFolder updated = examFolderService.updateTimetableInFolder("folder-1", "tt-1", timetable("Renamed"), 1L);
+
+		assertEquals(List.of("findAndModify timetables", "findAndModify exam_folders", "find timetables"),
+				mongoTemplate.operations);
+		assertEquals(2L, updated.getVersion());
+		assertEquals("Renamed", updated.getTimetables().get(0).getTableName());
+		assertEquals("Renamed", mongoTemplate.timetables.get("tt-1").getTableName());
+	}
+
+	@Test
+	void missingTimetableSpendsNoVersion() {
+		assertNull(examFolderService.updateTimetableInFolder("folder-1", "missing", timetable("Nope"), 1L));
+
+		assertEquals(List.of("findAndModify timetables"), mongoTemplate.operations);
+		assertEquals(1L, mongoTemplate.folders.get("folder-1").getVersion());
+	}
+
+	@Test
+	void conflictPutsTheTimetableBack() {
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> examFolderService.updateTimetableInFolder("folder-1", "tt-1", timetable("Stale"), 0L));
+
+		assertEquals("Original", mongoTemplate.timetables.get("tt-1").getTableName());
+		assertEquals(1L, mongoTemplate.folders.get("folder-1").getVersion());
+	}
+
+	@Test
+	void conflictPutsADeletedTimetableBack() {
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> examFolderService.deleteTimetableFromFolder("folder-1", "tt-1", 0L));
+
+		assertEquals("Original", mongoTemplate.timetables.get("tt-1").getTableName());
+		assertEquals(1L, mongoTemplate.folders.get("folder-1").getVersion());
+	}
+
+	@Test
+	void patchWritesTheTimetableThenBumpsTheFolder() {
+		ExamFolder patched = examFolderService.patchTimetableInFolder("folder-1", "tt-1",
+				List.of(new TimetablePatchOperation("replace", "/tableName", "Patched")), 1L);
+
+		assertEquals(List.of("findAndModify timetables", "findAndModify exam_folders"), mongoTemplate.operations);
+		assertEquals(2L, patched.getVersion());
+		assertEquals("Patched", patched.getTimetables().get(0).getTableName());
+		assertEquals("Patched", mongoTemplate.timetables.get("tt-1").getTableName());
+	}
+
+	@Test
+	void conflictPutsAPatchedTimetableBack() {
+		assertThrows(OptimisticLockingFailureException.class, () -> examFolderService.patchTimetableInFolder(
+				"folder-1", "tt-1", List.of(new TimetablePatchOperation("replace", "/tableName", "Stale")), 0L));
+
+		assertEquals("Original", mongoTemplate.timetables.get("tt-1").getTableName());
+		assertNull(examFolderService.patchTimetableInFolder("folder-1", "missing",
+				List.of(new TimetablePatchOperation("replace", "/tableName", "Nope")), null));
+		assertEquals(1L, mongoTemplate.folders.get("folder-1").getVersion());
+	}
+
+	@Test
+	void failedTimetableWriteUndoesTheBump() {
+		mongoTemplate.hook = operation -> {
+			if (operation.equals("insert timetables")) {
+				throw new DataIntegrityViolationException("write failed");
+			}
+		};
+
+		assertNull(examFolderService.addTimetableToFolder("folder-1", timetable(null, "Added"), 1L));
+
+		assertEquals(List.of("findAndModify exam_folders", "insert timetables", "updateFirst exam_folders"),
+				mongoTemplate.operations);
+		assertEquals(1L, mongoTemplate.folders.get("folder-1").getVersion());
+	}
+
+	@Test
+	void coalescedWriteRetriedAfterALostReplyKeepsItsBump() {
+		Timetable second = timetable("tt-2", "Original");
+		second.setFolderId("folder-1");
+		second.setPosition(1L);
+		mongoTemplate.timetables.put(second.getId(), second);
+		ReflectionTestUtils.setField(examFolderService, "examFolderRepository", repository());
+		ReflectionTestUtils.setField(examFolderService, "coalesceWrites", true);
+		ReflectionTestUtils.setField(examFolderService, "coalesceWindowMillis", 60_000L);
+		examFolderService.init();
+		TimetableWriteCoalescer coalescer = examFolderService.getTimetableWrites();
+
+		examFolderService.updateTimetableInFolder("folder-1", "tt-1", timetable("tt-1", "First"), 1L);
+		examFolderService.updateTimetableInFolder("folder-1", "tt-2", timetable("tt-2", "Second"), 2L);
+		// The first write's folder bump is applied, but its reply never arrives
+		List<String> failures = new ArrayList<>(List.of("findAndModify exam_folders"));
+		mongoTemplate.hook = operation -> {
+			if (failures.remove(operation)) {
+				throw new DataAccessResourceFailureException("Read timed out");
+			}
+		};
+		coalescer.flush("folder-1");
+		assertEquals(1, coalescer.getFailed());
+		coalescer.flush("folder-1");
+
+		assertEquals(0, coalescer.getDropped());
+		assertEquals(2, coalescer.getFlushed());
+		assertEquals("First", mongoTemplate.timetables.get("tt-1").getTableName());
+		assertEquals("Second", mongoTemplate.timetables.get("tt-2").getTableName());
+		assertEquals(3L, mongoTemplate.folders.get("folder-1").getVersion());
+		coalescer.close();
+	}
+
+	@Test
+	void outageAnswersFromTheLastCachedListingAndNeverEmpty() throws InterruptedException {
+		ReflectionTestUtils.setField(examFolderService, "examFolderRepository", repository());
+		ReflectionTestUtils.setField(examFolderCache, "maxWeight", 1000L);
+		ReflectionTestUtils.setField(examFolderCache, "ttlSeconds", 0L);
+		ReflectionTestUtils.setField(examFolderCache, "staleSeconds", 900L);
+
+		mongoDown = true;
+		assertThrows(DatabaseUnavailableException.class, () -> examFolderService.getExamFoldersByUserId("user-1"));
+		mongoDown = false;
+		assertEquals(1, examFolderService.getExamFoldersByUserId("user-1").size());
+		// Past its TTL, so only an outage may still read it
+		Thread.sleep(5);
+		mongoDown = true;
+
+		List<ExamFolder> lastKnown = examFolderService.getExamFoldersByUserId("user-1");
+		assertEquals(List.of("folder-1"), lastKnown.stream().map(ExamFolder::getId).toList());
+		assertEquals("folder-1", examFolderService.getExamFolderByUserAndName("user-1", "Finals").getId());
+		assertThrows(DatabaseUnavailableException.class, () -> examFolderService.getExamFolderById("folder-1"));
+	}
+
+	// Answers the lookups ExamFolderService makes from the template's folders
+	private ExamFolderRepository repository() {
+		return (ExamFolderRepository) Proxy.newProxyInstance(ExamFolderRepository.class.getClassLoader(),
+				new Class<?>[] {ExamFolderRepository.class}, (proxy, method, args) -> {
+					if (mongoDown) {
+						throw new DataAccessResourceFailureException("Timed out after 30000 ms");
+					}
+					List<ExamFolder> found = mongoTemplate.find(new Query(switch (method.getName()) {
+						case "findById" -> Criteria.where("_id").is(args[0]);
+						case "findByUserId" -> Criteria.where("userId").is(args[0]);
+						case "findByUserIdAndFolderName" -> Criteria.where("userId").is(args[0])
+								.and("folderName").is(args[1]);
+						default -> throw new UnsupportedOperationException(method.getName());
+					}), ExamFolder.class);
+					return method.getName().equals("findByUserId") ? found : found.stream().findFirst();
+				});
+	}
+
+	private static Timetable timetable(String name) {
+		return timetable("tt-1", name);
+	}
+
+	private static Timetable timetable(String id, String name) {
+		Timetable timetable = new Timetable();
+		timetable.setId(id);
+		timetable.setTableName(name);
+		return timetable;
+	}
+}
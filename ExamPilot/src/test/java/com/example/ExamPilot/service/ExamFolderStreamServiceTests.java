@@ -0,0 +1,86 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.repository.ReactiveExamFolderRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExamFolderStreamServiceTests {
+
+	// Never connected to: the template below answers finds itself
+	private final MongoClient client = MongoClients.create("mongodb://localhost:1");
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@AfterEach
+	void tearDown() {
+		client.close();
+	}
+
+	@Test
+	void failureBeforeTheFirstFolderIsAnErrorNotAnEmptyListing() {
+		ExamFolderStreamService service = service(Flux.error(mongoDown()), Mono.error(mongoDown()));
+
+		assertThrows(DatabaseUnavailableException.class, () -> service.streamFoldersByUserId("user-1").collectList().block());
+		assertThrows(DatabaseUnavailableException.class, () -> service.findFolderById("folder-1").block());
+		assertEquals(1, registry.get("exampilot.database.errors").tag("method", "streamFoldersByUserId").counter().count());
+		assertEquals(1, registry.get("exampilot.database.errors").tag("method", "findFolderById").counter().count());
+	}
+
+	@Test
+	void failureMidStreamEndsTheStreamWithAnError() {
+		ExamFolder first = new ExamFolder();
+		first.setId("folder-1");
+		ExamFolderStreamService service = service(Flux.just(first).concatWith(Flux.error(mongoDown())), Mono.empty());
+
+		List<String> received = new ArrayList<>();
+		assertThrows(DatabaseUnavailableException.class, () -> service.streamFoldersByUserId("user-1")
+				.doOnNext(folder -> received.add(folder.getId()))
+				.blockLast());
+		assertEquals(List.of("folder-1"), received);
+	}
+
+	private ExamFolderStreamService service(Flux<ExamFolder> byUser, Mono<ExamFolder> byId) {
+		ReactiveExamFolderRepository repository = (ReactiveExamFolderRepository) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] {ReactiveExamFolderRepository.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "findByUserId" -> byUser;
+					case "findById" -> byId;
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+		ReactiveMongoTemplate template = new ReactiveMongoTemplate(client, "stream") {
+			@Override
+			public <T> Flux<T> find(Query query, Class<T> entityClass) {
+				return Flux.empty();
+			}
+		};
+		TimetableStore timetableStore = new TimetableStore();
+		timetableStore.markMigrated();
+		ExamFolderStreamService service = new ExamFolderStreamService();
+		ReflectionTestUtils.setField(service, "reactiveExamFolderRepository", repository);
+		ReflectionTestUtils.setField(service, "reactiveMongoTemplate", template);
+		ReflectionTestUtils.setField(service, "databaseErrors", new DatabaseErrors(registry));
+		ReflectionTestUtils.setField(service, "timetableStore", timetableStore);
+		return service;
+	}
+
+	private static DataAccessResourceFailureException mongoDown() {
+		return new DataAccessResourceFailureException("Timed out after 5000 ms");
+	}
+}
@@ -0,0 +1,49 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.FolderChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FolderChangeBroadcasterTests {
+
+	@Test
+	void capsConnectionsPerInstance() {
+		FolderChangeBroadcaster broadcaster = broadcaster(2);
+		assertNotNull(broadcaster.subscribe("user-1"));
+		assertNotNull(broadcaster.subscribe("user-2"));
+		assertNull(broadcaster.subscribe("user-1"));
+		assertEquals(2, broadcaster.getSubscriberCount());
+	}
+
+	@Test
+	void closedConnectionIsForgottenOnItsNextChange() throws Exception {
+		FolderChangeBroadcaster broadcaster = broadcaster(10);
+		SseEmitter gone = broadcaster.subscribe("user-1");
+		broadcaster.subscribe("user-2");
+		gone.complete();
+
+		broadcaster.broadcast(new FolderChange("user-1", "folder-1", null, FolderChange.Operation.FOLDER_UPDATED, 1L));
+		// Another user's change never reaches the closed connection, so only its own sends fail
+		broadcaster.broadcast(new FolderChange("user-2", "folder-2", null, FolderChange.Operation.FOLDER_UPDATED, 1L));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (broadcaster.getSubscriberCount() > 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, broadcaster.getSubscriberCount());
+		assertEquals(0, broadcaster.getDropped());
+	}
+
+	private static FolderChangeBroadcaster broadcaster(int maxSubscribers) {
+		FolderChangeBroadcaster broadcaster = new FolderChangeBroadcaster();
+		ReflectionTestUtils.setField(broadcaster, "maxSubscribers", maxSubscribers);
+		ReflectionTestUtils.setField(broadcaster, "timeoutMinutes", 1L);
+		ReflectionTestUtils.setField(broadcaster, "heartbeatSeconds", 25L);
+		return broadcaster;
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.FolderChange;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FolderChangeRelayTests {
+
+	// Never connected to: the template below answers inserts itself
+	private final MongoClient client = MongoClients.create("mongodb://localhost:1");
+
+	private final List<List<String>> inserted = new ArrayList<>();
+	private final List<String> broadcast = new ArrayList<>();
+	private boolean mongoDown;
+
+	@AfterEach
+	void tearDown() {
+		client.close();
+	}
+
+	@Test
+	void changesAreQueuedAndInsertedInBatchesOffTheWritersThread() {
+		FolderChangeRelay relay = relay(10);
+		for (int i = 0; i < 3; i++) {
+			relay.onFolderChange(change("folder-" + i));
+		}
+		assertEquals(List.of(), inserted);
+		assertEquals(3, relay.getQueued());
+
+		relay.flush();
+
+		assertEquals(List.of(List.of("folder-0", "folder-1", "folder-2")), inserted);
+		assertEquals(List.of(), broadcast);
+		assertEquals(0, relay.getQueued());
+	}
+
+	@Test
+	void changesMongoCannotTakeStillReachThisInstancesViewers() {
+		FolderChangeRelay relay = relay(2);
+		relay.onFolderChange(change("folder-0"));
+		relay.onFolderChange(change("folder-1"));
+		// Queue full: pushed straight away
+		relay.onFolderChange(change("folder-2"));
+		assertEquals(List.of("folder-2"), broadcast);
+
+		mongoDown = true;
+		relay.flush();
+
+		assertEquals(List.of("folder-2", "folder-0", "folder-1"), broadcast);
+		assertEquals(3, relay.getUnrelayed());
+	}
+
+	@Test
+	void keepsTheResumeTokenUnlessMongoCannotResumeFromIt() {
+		assertTrue(FolderChangeRelay.cannotResume(commandError(286)));
+		assertTrue(FolderChangeRelay.cannotResume(new DataAccessResourceFailureException("wrapped", commandError(260))));
+		// An outage, however long, resumes where it left off
+		assertFalse(FolderChangeRelay.cannotResume(
+				new MongoSocketReadTimeoutException("Timed out", new ServerAddress(), new IOException())));
+		assertFalse(FolderChangeRelay.cannotResume(commandError(91)));
+	}
+
+	private static MongoCommandException commandError(int code) {
+		return new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+				.append("code", new BsonInt32(code)).append("errmsg", new BsonString("error " + code)), new ServerAddress());
+	}
+
+	private FolderChangeRelay relay(int queueSize) {
+		MongoTemplate mongoTemplate = new MongoTemplate(client, "relay") {
+			@Override
+			public <T> Collection<T> insert(Collection<? extends T> batchToSave, Class<?> entityClass) {
+				if (mongoDown) {
+					throw new DataAccessResourceFailureException("Timed out after 30000 ms");
+				}
+				List<String> folderIds = new ArrayList<>();
+				for (T change : batchToSave) {
+					folderIds.add(((FolderChange) change).getFolderId());
+				}
+				inserted.add(folderIds);
+				return new ArrayList<>(batchToSave);
+			}
+		};
+		FolderChangeBroadcaster broadcaster = new FolderChangeBroadcaster() {
+			@Override
+			public void broadcast(FolderChange change) {
+				broadcast.add(change.getFolderId());
+			}
+		};
+		FolderChangeRelay relay = new FolderChangeRelay();
+		ReflectionTestUtils.setField(relay, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(relay, "folderChangeBroadcaster", broadcaster);
+		ReflectionTestUtils.setField(relay, "databaseErrors", new DatabaseErrors(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(relay, "enabled", true);
+		ReflectionTestUtils.setField(relay, "queueSize", queueSize);
+		relay.init();
+		return relay;
+	}
+
+	private static FolderChange change(String folderId) {
+		return new FolderChange("user-1", folderId, null, FolderChange.Operation.FOLDER_UPDATED, 1L);
+	}
+}
@@ -0,0 +1,178 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.ExamFolderSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalFolderStoreTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void pendingWritesSurviveARestart() throws Exception {
+		LocalFolderStore store = open();
+		ExamFolder created = store.create(new ExamFolder("user-1", "Finals", "June"));
+		store.modify(created.getId(), null, 0L, folder -> {
+			folder.setDescription("July");
+			return true;
+		});
+		store.close();
+
+		LocalFolderStore reopened = open();
+		ExamFolder folder = reopened.findById(created.getId());
+		assertEquals("July", folder.getDescription());
+		assertEquals(1L, folder.getVersion());
+		assertTrue(reopened.isPending(created.getId()));
+		assertEquals(1, reopened.pending(10).size());
+	}
+
+	@Test
+	void tornLastRecordIsDropped() throws Exception {
+		LocalFolderStore store = open();
+		ExamFolder first = store.create(new ExamFolder("user-1", "Finals", null));
+		store.create(new ExamFolder("user-1", "Resits", null));
+		store.close();
+
+		Path journal = directory.resolve("folders.journal");
+		byte[] bytes = Files.readAllBytes(journal);
+		Files.write(journal, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+
+		LocalFolderStore reopened = open();
+		List<ExamFolder> folders = reopened.findByUserId("user-1");
+		assertEquals(1, folders.size());
+		assertEquals(first.getId(), folders.get(0).getId());
+		// Appends continue after the last whole record
+		reopened.create(new ExamFolder("user-1", "Resits", null));
+		reopened.close();
+		assertEquals(2, open().findByUserId("user-1").size());
+	}
+
+	@Test
+	void localChangesStartFromTheMongoCopy() throws Exception {
+		LocalFolderStore store = open();
+		ExamFolder mongoCopy = new ExamFolder("user-1", "Finals", null);
+		mongoCopy.setId("64b000000000000000000001");
+		mongoCopy.setVersion(4L);
+		assertNull(store.modify(mongoCopy.getId(), null, null, folder -> true));
+		assertFalse(store.isPending(mongoCopy.getId()));
+
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> store.modify(mongoCopy.getId(), mongoCopy, 3L, folder -> true));
+		store.modify(mongoCopy.getId(), mongoCopy, 4L, folder -> {
+			folder.setFolderName("Finals 2025");
+			return true;
+		});
+		// Once pending, the local state wins over a stale Mongo copy
+		store.modify(mongoCopy.getId(), mongoCopy, 5L, folder -> {
+			folder.setDescription("June");
+			return true;
+		});
+		ExamFolder held = store.findById(mongoCopy.getId());
+		assertEquals("Finals 2025", held.getFolderName());
+		assertEquals("June", held.getDescription());
+		assertEquals(4L, store.pending(10).get(0).baseVersion);
+
+		assertThrows(DuplicateKeyException.class, () -> store.create(new ExamFolder("user-1", "Finals 2025", null)));
+		store.replayed(store.pending(10).get(0));
+		assertFalse(store.hasPending("user-1"));
+		assertNull(store.findById(mongoCopy.getId()));
+	}
+
+	@Test
+	void pendingFoldersReplaceTheirMongoRows() throws Exception {
+		LocalFolderStore store = open();
+		ExamFolder renamed = mongoFolder("64b000000000000000000001", "Finals", LocalDateTime.of(2025, 5, 1, 9, 0));
+		ExamFolder untouched = mongoFolder("64b000000000000000000002", "Resits", LocalDateTime.of(2025, 5, 2, 9, 0));
+		ExamFolder deleted = mongoFolder("64b000000000000000000003", "Mocks", LocalDateTime.of(2025, 5, 3, 9, 0));
+		store.modify(renamed.getId(), renamed, null, folder -> {
+			folder.setFolderName("Finals 2025");
+			return true;
+		});
+		store.delete(deleted.getId(), deleted);
+		store.create(new ExamFolder("user-2", "Other", null));
+
+		assertEquals(2, store.pendingCount("user-1"));
+		assertEquals(1, store.pendingCount("user-2"));
+		List<ExamFolder> listing = store.overlay("user-1", List.of(renamed, untouched, deleted));
+		assertEquals(List.of("Resits", "Finals 2025"), listing.stream().map(ExamFolder::getFolderName).toList());
+
+		List<ExamFolderSummary> page = store.overlaySummaries("user-1",
+				List.of(summary(deleted), summary(untouched), summary(renamed)), null, null, 2);
+		// The local rename made it the most recently updated
+		assertEquals(List.of(renamed.getId(), untouched.getId()), page.stream().map(ExamFolderSummary::getId).toList());
+		assertEquals(List.of(untouched), store.overlay("user-3", List.of(untouched)));
+	}
+
+	@Test
+	void replayedChangesAreCompactedAway() throws Exception {
+		LocalFolderStore store = open();
+		for (int i = 0; i < 600; i++) {
+			ExamFolder created = store.create(new ExamFolder("user-1", "Folder " + i, null));
+			store.replayed(store.pending(1).get(0));
+			assertFalse(store.isPending(created.getId()));
+		}
+		ExamFolder kept = store.create(new ExamFolder("user-1", "Kept", null));
+		store.close();
+
+		Path journal = directory.resolve("folders.journal");
+		assertTrue(Files.size(journal) < 100_000, Files.size(journal) + " bytes");
+		LocalFolderStore reopened = open();
+		assertEquals(1, reopened.pendingCount());
+		assertEquals(kept.getId(), reopened.findByUserId("user-1").get(0).getId());
+	}
+
+	@Test
+	void recognisesOutages() {
+		assertTrue(LocalFolderStore.isOutage(new IllegalStateException(
+				new DataAccessResourceFailureException("Timed out after 30000 ms"))));
+		assertFalse(LocalFolderStore.isOutage(new DuplicateKeyException("E11000")));
+	}
+
+	private static ExamFolder mongoFolder(String id, String name, LocalDateTime updatedAt) {
+		ExamFolder folder = new ExamFolder("user-1", name, null);
+		folder.setId(id);
+		folder.setVersion(1L);
+		folder.setUpdatedAt(updatedAt);
+		return folder;
+	}
+
+	private static ExamFolderSummary summary(ExamFolder folder) {
+		ExamFolderSummary summary = new ExamFolderSummary();
+		summary.setId(folder.getId());
+		summary.setFolderName(folder.getFolderName());
+		summary.setUpdatedAt(folder.getUpdatedAt());
+		summary.setVersion(folder.getVersion());
+		return summary;
+	}
+
+	private LocalFolderStore open() throws Exception {
+		LocalFolderStore store = new LocalFolderStore();
+		ReflectionTestUtils.setField(store, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(store, "enabled", true);
+		ReflectionTestUtils.setField(store, "path", directory.resolve("folders.journal").toString());
+		store.open();
+		return store;
+	}
+}
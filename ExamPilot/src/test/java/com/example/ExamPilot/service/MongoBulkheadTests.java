@@ -0,0 +1,106 @@
+package com.example.ExamPilot.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoBulkheadTests {
+
+	@Test
+	void rejectsWhenSaturated() throws Exception {
+		MongoBulkhead bulkhead = new MongoBulkhead(1, 10);
+		CountDownLatch holding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread holder = Thread.ofVirtual().start(() -> {
+			try (MongoBulkhead.Permit permit = bulkhead.acquire()) {
+				holding.countDown();
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		holding.await();
+
+		assertThrows(BulkheadFullException.class, bulkhead::acquire);
+		assertEquals(1, bulkhead.getRejected());
+
+		release.countDown();
+		holder.join();
+		try (MongoBulkhead.Permit permit = bulkhead.acquire()) {
+			assertEquals(1, bulkhead.getInFlight());
+		}
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+	@Test
+	void nestedAcquireOnSameThreadReusesPermit() {
+		MongoBulkhead bulkhead = new MongoBulkhead(1, 10);
+		try (MongoBulkhead.Permit outer = bulkhead.acquire();
+			 MongoBulkhead.Permit inner = bulkhead.acquire()) {
+			assertEquals(1, bulkhead.getInFlight());
+		}
+		assertEquals(0, bulkhead.getInFlight());
+		assertEquals(1, bulkhead.getAcquired());
+	}
+
+	@Test
+	void queuedCallerTakesTheReleasedPermit() throws Exception {
+		MongoBulkhead bulkhead = new MongoBulkhead(1, 60_000);
+		Timer waits = Timer.builder("exampilot.bulkhead.wait").register(new SimpleMeterRegistry());
+		bulkhead.recordWaitsIn(waits);
+		MongoBulkhead.Permit held = bulkhead.acquire();
+		CountDownLatch granted = new CountDownLatch(1);
+		Thread waiter = Thread.ofVirtual().start(() -> {
+			try (MongoBulkhead.Permit permit = bulkhead.acquire()) {
+				granted.countDown();
+			}
+		});
+		while (bulkhead.getQueued() == 0) {
+			Thread.onSpinWait();
+		}
+		assertEquals(1, granted.getCount());
+
+		held.close();
+		granted.await();
+		waiter.join();
+		assertEquals(0, bulkhead.getInFlight());
+		assertEquals(2, bulkhead.getAcquired());
+		assertEquals(0, bulkhead.getRejected());
+		assertEquals(2, waits.count());
+		// The queued caller's wait is the largest recorded
+		assertEquals(bulkhead.getMaxWaitNanos(), waits.max(TimeUnit.NANOSECONDS), 1);
+	}
+
+	@Test
+	void interruptedCallerIsRejectedWithoutLeakingAPermit() throws Exception {
+		MongoBulkhead bulkhead = new MongoBulkhead(1, 60_000);
+		MongoBulkhead.Permit held = bulkhead.acquire();
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Thread waiter = Thread.ofVirtual().start(() -> {
+			assertThrows(BulkheadFullException.class, bulkhead::acquire);
+			interrupted.set(Thread.currentThread().isInterrupted());
+		});
+		while (bulkhead.getQueued() == 0) {
+			Thread.onSpinWait();
+		}
+		waiter.interrupt();
+		waiter.join();
+
+		assertTrue(interrupted.get());
+		assertEquals(1, bulkhead.getRejected());
+		held.close();
+		assertEquals(0, bulkhead.getInFlight());
+		// The rejected thread's depth was never raised, so its next acquire takes a real permit
+		try (MongoBulkhead.Permit permit = bulkhead.acquire()) {
+			assertEquals(1, bulkhead.getInFlight());
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Holds folders and timetables in memory and answers the calls ExamFolderService and TimetableStore make for
+// timetable edits, recording each one as "<operation> <collection>" so tests can count round trips.
+// Queries are matched on equality of their top-level fields, plus $in and $or; updates are top-level $set
+// and $inc. Fields the entity does not map are kept beside it. A hook can fail a call after it has been
+// applied, as a lost reply would.
+class RecordingMongoTemplate extends MongoTemplate {
+
+	interface Hook {
+		void after(String operation);
+	}
+
+	final Map<String, ExamFolder> folders = new LinkedHashMap<>();
+	final Map<String, Timetable> timetables = new LinkedHashMap<>();
+	final List<String> operations = new ArrayList<>();
+	private final Map<Object, Document> unmapped = new IdentityHashMap<>();
+	Hook hook = operation -> { };
+
+	RecordingMongoTemplate(MongoClient client) {
+		super(client, "recording");
+	}
+
+	void reset() {
+		operations.clear();
+	}
+
+	@Override
+	public <T> T findAndModify(Query query, UpdateDefinition update, FindAndModifyOptions options,
+							   Class<T> entityClass) {
+		Object found = first(query, entityClass);
+		Object result = null;
+		if (found != null) {
+			Object before = copy(found);
+			apply(update.getUpdateObject(), found);
+			result = options.isReturnNew() ? copy(found) : before;
+		}
+		record("findAndModify", entityClass);
+		return entityClass.cast(result);
+	}
+
+	@Override
+	public <T> T findAndRemove(Query query, Class<T> entityClass) {
+		Object found = first(query, entityClass);
+		if (found != null) {
+			store(entityClass).values().remove(found);
+		}
+		record("findAndRemove", entityClass);
+		return entityClass.cast(found);
+	}
+
+	@Override
+	public <T> T findAndReplace(Query query, T replacement) {
+		Object found = first(query, replacement.getClass());
+		if (found != null) {
+			put(copy(replacement));
+		}
+		record("findAndReplace", replacement.getClass());
+		@SuppressWarnings("unchecked")
+		T previous = (T) found;
+		return previous;
+	}
+
+	@Override
+	public <T> T insert(T objectToSave) {
+		put(copy(objectToSave));
+		record("insert", objectToSave.getClass());
+		return objectToSave;
+	}
+
+	@Override
+	public <T> Collection<T> insert(Collection<? extends T> batchToSave, Class<?> entityClass) {
+		for (T object : batchToSave) {
+			put(copy(object));
+		}
+		record("insert", entityClass);
+		return new ArrayList<>(batchToSave);
+	}
+
+	@Override
+	public UpdateResult updateFirst(Query query, UpdateDefinition update, Class<?> entityClass) {
+		Object found = first(query, entityClass);
+		if (found != null) {
+			apply(update.getUpdateObject(), found);
+		}
+		record("updateFirst", entityClass);
+		return UpdateResult.acknowledged(found != null ? 1 : 0, found != null ? 1L : 0L, null);
+	}
+
+	@Override
+	public <T> List<T> find(Query query, Class<T> entityClass) {
+		List<T> found = new ArrayList<>();
+		for (Object candidate : store(entityClass).values()) {
+			if (matches(query.getQueryObject(), candidate)) {
+				found.add(entityClass.cast(copy(candidate)));
+			}
+		}
+		if (entityClass == Timetable.class) {
+			found.sort(Comparator.comparing(timetable -> ((Timetable) timetable).getPosition(),
+					Comparator.nullsFirst(Comparator.naturalOrder())));
+		}
+		record("find", entityClass);
+		return found;
+	}
+
+	@Override
+	public boolean exists(Query query, Class<?> entityClass) {
+		boolean exists = first(query, entityClass) != null;
+		record("exists", entityClass);
+		return exists;
+	}
+
+	private void record(String operation, Class<?> entityClass) {
+		String call = operation + " " + (entityClass == ExamFolder.class ? "exam_folders" : "timetables");
+		operations.add(call);
+		hook.after(call);
+	}
+
+	private Object first(Query query, Class<?> entityClass) {
+		for (Object candidate : store(entityClass).values()) {
+			if (matches(query.getQueryObject(), candidate)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> store(Class<?> entityClass) {
+		return (Map<String, Object>) (Map<String, ?>) (entityClass == ExamFolder.class ? folders : timetables);
+	}
+
+	private void put(Object entity) {
+		if (entity instanceof ExamFolder folder) {
+			folders.put(folder.getId(), folder);
+		} else {
+			Timetable timetable = (Timetable) entity;
+			timetables.put(timetable.getId(), timetable);
+		}
+	}
+
+	private boolean matches(Document query, Object candidate) {
+		BeanWrapper bean = PropertyAccessorFactory.forBeanPropertyAccess(candidate);
+		for (Map.Entry<String, Object> criterion : query.entrySet()) {
+			if (criterion.getKey().equals("$or")) {
+				boolean any = false;
+				for (Object alternative : (Collection<?>) criterion.getValue()) {
+					any |= matches((Document) alternative, candidate);
+				}
+				if (!any) {
+					return false;
+				}
+				continue;
+			}
+			String property = criterion.getKey().equals("_id") ? "id" : criterion.getKey();
+			Object actual = bean.isReadableProperty(property) ? bean.getPropertyValue(property)
+					: unmapped.getOrDefault(candidate, new Document()).get(property);
+			if (criterion.getValue() instanceof Document operator && operator.containsKey("$in")) {
+				if (!((Collection<?>) operator.get("$in")).contains(actual)) {
+					return false;
+				}
+			} else if (!Objects.equals(criterion.getValue(), actual)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void apply(Document update, Object target) {
+		BeanWrapper bean = PropertyAccessorFactory.forBeanPropertyAccess(target);
+		Document set = (Document) update.getOrDefault("$set", new Document());
+		for (Map.Entry<String, Object> field : set.entrySet()) {
+			if (bean.isWritableProperty(field.getKey())) {
+				bean.setPropertyValue(field.getKey(), field.getValue());
+			} else {
+				unmapped.computeIfAbsent(target, entity -> new Document()).put(field.getKey(), field.getValue());
+			}
+		}
+		Document inc = (Document) update.getOrDefault("$inc", new Document());
+		for (Map.Entry<String, Object> field : inc.entrySet()) {
+			Number current = (Number) bean.getPropertyValue(field.getKey());
+			bean.setPropertyValue(field.getKey(), (current != null ? current.longValue() : 0L)
+					+ ((Number) field.getValue()).longValue());
+		}
+	}
+
+	// Stored objects never leak to the caller, as with a real database
+	private static Object copy(Object entity) {
+		BeanWrapper source = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+		Object copy = BeanUtils.instantiateClass(entity.getClass());
+		BeanWrapper target = PropertyAccessorFactory.forBeanPropertyAccess(copy);
+		for (PropertyDescriptor property : source.getPropertyDescriptors()) {
+			String name = property.getName();
+			if (source.isReadableProperty(name) && target.isWritableProperty(name)) {
+				Object value = source.getPropertyValue(name);
+				target.setPropertyValue(name, value instanceof List<?> list ? new ArrayList<>(list) : value);
+			}
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ScheduleRequest;
+import com.example.ExamPilot.model.Timetable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SchedulingEngineTests {
+
+	private final SchedulingEngine engine = new SchedulingEngine();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(engine, "restarts", 64);
+		ReflectionTestUtils.setField(engine, "parallelism", 4);
+		engine.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		engine.shutdown();
+	}
+
+	@Test
+	void sameRequestYieldsSameTimetable() {
+		List<String> first = layout(engine.generate(request(12, "2025-06-02", "2025-06-27", 2)));
+		for (int i = 0; i < 5; i++) {
+			assertEquals(first, layout(engine.generate(request(12, "2025-06-02", "2025-06-27", 2))));
+		}
+	}
+
+	@Test
+	void everySubjectIsScheduledOnceOnAWeekday() {
+		// 20 weekdays for 40 subjects: every slot is needed
+		for (int subjects : new int[] {1, 7, 20, 40}) {
+			Timetable timetable = engine.generate(request(subjects, "2025-06-02", "2025-06-27", 1));
+			List<String> scheduled = new ArrayList<>();
+			for (Timetable.TimetableDay day : timetable.getTimetable()) {
+				assertNotEquals(DayOfWeek.SATURDAY, day.getDate().getDayOfWeek());
+				assertNotEquals(DayOfWeek.SUNDAY, day.getDate().getDayOfWeek());
+				if (day.getMorning() != null) {
+					scheduled.add(day.getMorning().getName());
+				}
+				if (day.getAfternoon() != null) {
+					scheduled.add(day.getAfternoon().getName());
+				}
+			}
+			assertEquals(subjects, scheduled.size());
+			assertEquals(subjects, scheduled.stream().distinct().count());
+		}
+	}
+
+	@Test
+	void rejectsMoreSubjectsThanSlots() {
+		assertThrows(IllegalArgumentException.class,
+				() -> engine.generate(request(11, "2025-06-02", "2025-06-06", 1)));
+	}
+
+	private static ScheduleRequest request(int subjects, String start, String end, int dayGap) {
+		ScheduleRequest request = new ScheduleRequest();
+		request.setTableName("Finals");
+		request.setStartDate(start);
+		request.setEndDate(end);
+		request.setDayGap(dayGap);
+		for (int i = 0; i < subjects; i++) {
+			ScheduleRequest.Subject subject = new ScheduleRequest.Subject();
+			subject.setName("Subject " + i);
+			subject.setDuration("3h");
+			subject.setCredits(String.valueOf(i % 4 + 1));
+			request.getSubjects().add(subject);
+		}
+		return request;
+	}
+
+	private static List<String> layout(Timetable timetable) {
+		List<String> layout = new ArrayList<>();
+		for (Timetable.TimetableDay day : timetable.getTimetable()) {
+			layout.add(day.getDate() + " " + (day.getMorning() != null ? day.getMorning().getName() : "-")
+					+ " / " + (day.getAfternoon() != null ? day.getAfternoon().getName() : "-"));
+		}
+		return layout;
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.Timetable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimetableIdGeneratorTests {
+
+	private static final int THREADS = 16;
+	private static final int IDS_PER_THREAD = 50_000;
+
+	private TimetableIdGenerator generator;
+
+	@BeforeEach
+	void setUp() {
+		generator = new TimetableIdGenerator();
+		generator.init();
+	}
+
+	@Test
+	void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+		Set<String> seen = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					String previous = "";
+					boolean increasing = true;
+					for (int i = 0; i < IDS_PER_THREAD; i++) {
+						String id = generator.nextId();
+						increasing &= id.compareTo(previous) > 0;
+						seen.add(id);
+						previous = id;
+					}
+					return increasing;
+				}));
+			}
+			start.countDown();
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get(), "ids went backwards within a thread");
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+	}
+
+	@Test
+	void idsSortByCreationTime() throws Exception {
+		String first = generator.nextId();
+		Thread.sleep(5);
+		String second = generator.nextId();
+
+		assertTrue(first.compareTo(second) < 0);
+		long before = System.currentTimeMillis();
+		long created = TimetableIdGenerator.timestampOf(generator.nextId());
+		assertTrue(Math.abs(created - before) < 1000);
+	}
+
+	@Test
+	void assignsMissingTimetableAndSessionIds() {
+		Timetable.ExamSession existing = new Timetable.ExamSession();
+		existing.setId("kept");
+		Timetable.TimetableDay day = new Timetable.TimetableDay();
+		day.setMorning(existing);
+		day.setAfternoon(new Timetable.ExamSession());
+		Timetable timetable = new Timetable();
+		timetable.setTimetable(List.of(day));
+
+		generator.assignIds(timetable);
+
+		assertNotNull(timetable.getId());
+		assertEquals("kept", day.getMorning().getId());
+		assertNotNull(day.getAfternoon().getId());
+	}
+}
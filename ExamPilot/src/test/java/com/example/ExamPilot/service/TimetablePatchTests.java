@@ -0,0 +1,83 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.Timetable;
+import com.example.ExamPilot.model.TimetablePatchOperation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimetablePatchTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private TimetableIdGenerator generator;
+
+	@BeforeEach
+	void setUp() {
+		generator = new TimetableIdGenerator();
+		generator.init();
+	}
+
+	@Test
+	void cellEditIsOneNestedSetGuardedByItsSession() {
+		TimetablePatch patch = patch(new TimetablePatchOperation("replace", "/timetable/3/afternoon/duration", "2h"));
+
+		Document set = (Document) patch.update().getUpdateObject().get("$set");
+		assertEquals("2h", set.get("timetable.3.afternoon.duration"));
+		assertTrue(set.containsKey("updatedAt"));
+		assertEquals(2, set.size());
+
+		Document guards = new Document();
+		for (Criteria guard : patch.guards()) {
+			guards.putAll(guard.getCriteriaObject());
+		}
+		assertEquals(true, ((Document) guards.get("timetable.3")).get("$exists"));
+		assertTrue(guards.containsKey("timetable.3.afternoon"));
+	}
+
+	@Test
+	void removeUnsetsAndSessionsGetIds() {
+		TimetablePatch patch = patch(
+				new TimetablePatchOperation("remove", "/timetable/0/morning", null),
+				new TimetablePatchOperation("add", "/timetable/1/morning", Map.of("name", "Physics", "duration", "3h")),
+				new TimetablePatchOperation("replace", "/timetable/1/date", "02/06/2025"));
+
+		Document update = patch.update().getUpdateObject();
+		assertTrue(((Document) update.get("$unset")).containsKey("timetable.0.morning"));
+		Document set = (Document) update.get("$set");
+		Timetable.ExamSession session = assertInstanceOf(Timetable.ExamSession.class, set.get("timetable.1.morning"));
+		assertEquals("Physics", session.getName());
+		assertNotNull(session.getId());
+		assertEquals(LocalDate.of(2025, 6, 2), set.get("timetable.1.date"));
+	}
+
+	@Test
+	void rejectsWhatCannotBeANestedSet() {
+		assertThrows(IllegalArgumentException.class,
+				() -> patch(new TimetablePatchOperation("replace", "/folderId", "elsewhere")));
+		assertThrows(IllegalArgumentException.class,
+				() -> patch(new TimetablePatchOperation("replace", "/timetable/3/afternoon/id", "x")));
+		assertThrows(IllegalArgumentException.class,
+				() -> patch(new TimetablePatchOperation("move", "/timetable/3/afternoon/name", "x")));
+		assertThrows(IllegalArgumentException.class,
+				() -> patch(new TimetablePatchOperation("replace", "/timetable/3/date", "not a date")));
+		assertThrows(IllegalArgumentException.class, () -> patch(
+				new TimetablePatchOperation("add", "/timetable/3/afternoon", Map.of("name", "Physics")),
+				new TimetablePatchOperation("replace", "/timetable/3/afternoon/duration", "2h")));
+	}
+
+	private TimetablePatch patch(TimetablePatchOperation... operations) {
+		return TimetablePatch.of(List.of(operations), objectMapper, generator);
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class TimetableStoreTests {
+
+	@Container
+	static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+	private static MongoClient client;
+	private static MongoTemplate mongoTemplate;
+
+	private TimetableStore timetableStore;
+
+	@BeforeAll
+	static void connect() {
+		client = MongoClients.create(mongo.getReplicaSetUrl("timetables"));
+		mongoTemplate = new MongoTemplate(client, "timetables");
+	}
+
+	@AfterAll
+	static void disconnect() {
+		if (client != null) {
+			client.close();
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(ExamFolder.class);
+		mongoTemplate.dropCollection(Timetable.class);
+		TimetableIdGenerator idGenerator = new TimetableIdGenerator();
+		idGenerator.init();
+		timetableStore = new TimetableStore();
+		ReflectionTestUtils.setField(timetableStore, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(timetableStore, "timetableIdGenerator", idGenerator);
+		ReflectionTestUtils.setField(timetableStore, "examFolderCache", new ExamFolderCache());
+	}
+
+	@Test
+	void migrationMovesEmbeddedTimetablesOutOnce() {
+		embeddedFolder("folder-1", timetable("tt-1", "First"), timetable("tt-2", "Second"));
+
+		timetableStore.migrate("folder-1");
+		timetableStore.migrate("folder-1");
+
+		List<Timetable> migrated = stored("folder-1");
+		assertEquals(List.of("tt-1", "tt-2"), ids(migrated));
+		assertEquals(List.of(0L, 1L), List.of(migrated.get(0).getPosition(), migrated.get(1).getPosition()));
+		assertEquals("user-1", migrated.get(0).getUserId());
+		assertFalse(rawFolder("folder-1").containsKey("timetables"));
+		assertEquals(List.of("tt-1", "tt-2"), ids(timetableStore.findByFolderId("folder-1")));
+	}
+
+	@Test
+	void migrationKeepsCopiesEditedSinceAndRenumbersIdsTakenElsewhere() {
+		timetableStore.insert(folder("folder-2"), new ArrayList<>(List.of(timetable("tt-shared", "Other folder's"))));
+		Timetable edited = timetable("tt-1", "Edited");
+		edited.setFolderId("folder-1");
+		mongoTemplate.insert(edited);
+		embeddedFolder("folder-1", timetable("tt-1", "Embedded"), timetable("tt-shared", "Mine"));
+
+		timetableStore.migrate("folder-1");
+
+		List<Timetable> migrated = stored("folder-1");
+		assertEquals(2, migrated.size());
+		assertEquals("Edited", migrated.get(0).getTableName());
+		assertNotEquals("tt-shared", migrated.get(1).getId());
+		assertEquals("Mine", migrated.get(1).getTableName());
+		assertEquals("Other folder's", stored("folder-2").get(0).getTableName());
+	}
+
+	@Test
+	void replaceAllUpsertsTheNewSetAndRemovesTheRest() {
+		ExamFolder folder = folder("folder-1");
+		timetableStore.insert(folder, new ArrayList<>(List.of(timetable("tt-1", "Dropped"), timetable("tt-2", "Kept"))));
+
+		timetableStore.replaceAll(folder, new ArrayList<>(List.of(timetable("tt-2", "Renamed"), timetable(null, "New"))));
+
+		List<Timetable> replaced = stored("folder-1");
+		assertEquals(2, replaced.size());
+		assertEquals("tt-2", replaced.get(0).getId());
+		assertEquals("Renamed", replaced.get(0).getTableName());
+		assertEquals("New", replaced.get(1).getTableName());
+		assertTrue(replaced.get(0).getPosition() < replaced.get(1).getPosition());
+	}
+
+	@Test
+	void replaceAllRenumbersIdsAnotherFolderHolds() {
+		timetableStore.insert(folder("folder-2"), new ArrayList<>(List.of(timetable("tt-shared", "Other folder's"))));
+		ExamFolder folder = folder("folder-1");
+
+		timetableStore.replaceAll(folder, new ArrayList<>(List.of(timetable("tt-shared", "Copied"))));
+
+		List<Timetable> replaced = stored("folder-1");
+		assertEquals(1, replaced.size());
+		assertNotEquals("tt-shared", replaced.get(0).getId());
+		assertEquals("Copied", replaced.get(0).getTableName());
+		assertEquals("Other folder's", stored("folder-2").get(0).getTableName());
+	}
+
+	private void embeddedFolder(String folderId, Timetable... timetables) {
+		EmbeddedTimetables folder = new EmbeddedTimetables();
+		folder.setId(folderId);
+		folder.setUserId("user-1");
+		folder.setVersion(1L);
+		folder.setTimetables(new ArrayList<>(List.of(timetables)));
+		mongoTemplate.insert(folder);
+	}
+
+	private Document rawFolder(String folderId) {
+		return mongoTemplate.getCollection("exam_folders").find(new Document("_id", folderId)).first();
+	}
+
+	private List<Timetable> stored(String folderId) {
+		Query query = new Query(Criteria.where("folderId").is(folderId)).with(Sort.by("position"));
+		return mongoTemplate.find(query, Timetable.class);
+	}
+
+	private static List<String> ids(List<Timetable> timetables) {
+		List<String> ids = new ArrayList<>();
+		for (Timetable timetable : timetables) {
+			ids.add(timetable.getId());
+		}
+		return ids;
+	}
+
+	private static ExamFolder folder(String folderId) {
+		ExamFolder folder = new ExamFolder("user-1", folderId, null);
+		folder.setId(folderId);
+		return folder;
+	}
+
+	private static Timetable timetable(String id, String name) {
+		Timetable timetable = new Timetable();
+		timetable.setId(id);
+		timetable.setTableName(name);
+		return timetable;
+	}
+}
@@ -0,0 +1,167 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.ExamFolder;
+import com.example.ExamPilot.model.Timetable;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimetableWriteCoalescerTests {
+
+	private final List<String> writes = new ArrayList<>();
+	private long storedVersion = 7;
+	private int loads;
+	// The next write of this timetable fails as if Mongo were unreachable
+	private String failNextWriteOf;
+	private boolean writesFail;
+
+	// A window long enough that only explicit flushes write
+	private final TimetableWriteCoalescer coalescer = new TimetableWriteCoalescer(60_000, this::load, this::write);
+
+	@Test
+	void burstOfEditsIsOneWritePerTimetable() {
+		for (int i = 0; i < 5; i++) {
+			coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Edit " + i), null);
+		}
+		ExamFolder projected = coalescer.submit("folder-1", "tt-2", timetable("tt-2", "Other"), null);
+		assertEquals(9L, projected.getVersion());
+		assertEquals("Edit 4", projected.getTimetables().get(0).getTableName());
+		assertSame(projected, coalescer.projection("folder-1"));
+		assertEquals(List.of(), writes);
+
+		coalescer.flush("folder-1");
+
+		assertEquals(List.of("tt-1 Edit 4 @7", "tt-2 Other @8"), writes);
+		assertEquals(9L, storedVersion);
+		assertEquals(4, coalescer.getCoalesced());
+		assertEquals(2, coalescer.getFlushed());
+		assertNull(coalescer.projection("folder-1"));
+	}
+
+	@Test
+	void versionChecksAgainstTheProjection() {
+		ExamFolder projected = coalescer.submit("folder-1", "tt-1", timetable("tt-1", "First"), 7L);
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Stale"), 7L));
+		coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Second"), projected.getVersion());
+		assertNull(coalescer.submit("folder-1", "missing", timetable("missing", "Nope"), null));
+
+		coalescer.close();
+
+		assertEquals(List.of("tt-1 Second @7"), writes);
+	}
+
+	@Test
+	void readsSeeHeldEditsUntilTheyAreWritten() {
+		ExamFolder first = coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Held"), null);
+		ExamFolder second = coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Held again"), 8L);
+		assertEquals(8L, second.getVersion());
+		assertEquals("Held again", coalescer.projection("folder-1").getTimetables().get(0).getTableName());
+		// The first reader's folder does not change underneath it
+		assertEquals("Held", first.getTimetables().get(0).getTableName());
+		assertEquals(1, loads);
+
+		coalescer.flush("folder-1");
+		assertNull(coalescer.projection("folder-1"));
+		ExamFolder next = coalescer.submit("folder-1", "tt-2", timetable("tt-2", "Next"), 8L);
+		assertEquals(2, loads);
+		assertEquals(9L, next.getVersion());
+	}
+
+	@Test
+	void conflictingChangeDropsHeldEditsInsteadOfOverwritingIt() {
+		coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Mine"), null);
+		coalescer.submit("folder-1", "tt-2", timetable("tt-2", "Mine too"), null);
+		// Another instance writes the folder before the window closes
+		storedVersion++;
+
+		coalescer.flush("folder-1");
+
+		assertEquals(List.of(), writes);
+		assertEquals(2, coalescer.getDropped());
+		assertEquals(0, coalescer.getFlushed());
+		assertNull(coalescer.projection("folder-1"));
+	}
+
+	@Test
+	void failedWriteIsKeptAndRetried() {
+		coalescer.submit("folder-1", "tt-1", timetable("tt-1", "First"), null);
+		ExamFolder projected = coalescer.submit("folder-1", "tt-2", timetable("tt-2", "Second"), null);
+		failNextWriteOf = "tt-2";
+
+		coalescer.flush("folder-1");
+
+		assertEquals(List.of("tt-1 First @7"), writes);
+		assertEquals(1, coalescer.getFailed());
+		assertSame(projected, coalescer.projection("folder-1"));
+		// tt-1 is in Mongo now, so editing it again is another write and another version
+		ExamFolder edited = coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Third"), 9L);
+		assertEquals(10L, edited.getVersion());
+
+		coalescer.flush("folder-1");
+
+		assertEquals(List.of("tt-1 First @7", "tt-2 Second @8", "tt-1 Third @9"), writes);
+		assertEquals(10L, storedVersion);
+		assertEquals(0, coalescer.getDropped());
+		assertNull(coalescer.projection("folder-1"));
+	}
+
+	@Test
+	void retriesAreCapped() {
+		coalescer.submit("folder-1", "tt-1", timetable("tt-1", "Never written"), null);
+		writesFail = true;
+
+		for (int i = 0; i < TimetableWriteCoalescer.MAX_ATTEMPTS; i++) {
+			assertNotNull(coalescer.projection("folder-1"));
+			coalescer.flush("folder-1");
+		}
+
+		assertEquals(TimetableWriteCoalescer.MAX_ATTEMPTS, coalescer.getFailed());
+		assertEquals(1, coalescer.getDropped());
+		assertNull(coalescer.projection("folder-1"));
+	}
+
+	private ExamFolder load(String folderId) {
+		loads++;
+		return stored(folderId);
+	}
+
+	private ExamFolder stored(String folderId) {
+		ExamFolder folder = new ExamFolder("user-1", "Finals", null);
+		folder.setId(folderId);
+		folder.setVersion(storedVersion);
+		folder.setTimetables(List.of(timetable("tt-1", "Original"), timetable("tt-2", "Original")));
+		return folder;
+	}
+
+	private ExamFolder write(String folderId, String timetableId, Timetable timetable, Long expectedVersion,
+							 String writeId) {
+		if (writesFail || timetableId.equals(failNextWriteOf)) {
+			failNextWriteOf = null;
+			throw new DataAccessResourceFailureException("Timed out after 30000 ms");
+		}
+		if (expectedVersion == null || expectedVersion != storedVersion) {
+			throw new OptimisticLockingFailureException("conflict");
+		}
+		writes.add(timetableId + " " + timetable.getTableName() + " @" + expectedVersion);
+		ExamFolder folder = stored(folderId);
+		folder.setVersion(++storedVersion);
+		return folder;
+	}
+
+	private static Timetable timetable(String id, String name) {
+		Timetable timetable = new Timetable();
+		timetable.setId(id);
+		timetable.setTableName(name);
+		return timetable;
+	}
+}
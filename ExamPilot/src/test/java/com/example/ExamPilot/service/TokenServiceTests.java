@@ -0,0 +1,104 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenServiceTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void verifiesWhatItSigned() {
+		TokenService tokens = tokenService("current-secret", "2024-06", "", 3600);
+		Map<String, Object> claims = tokens.validateToken(tokens.issueToken(user()));
+
+		assertNotNull(claims);
+		assertEquals("alice", claims.get("sub"));
+		assertEquals("user-1", claims.get("uid"));
+		assertEquals("USER", claims.get("role"));
+	}
+
+	@Test
+	void rejectsExpiredTokens() {
+		TokenService tokens = tokenService("current-secret", "2024-06", "", -10);
+		assertNull(tokens.validateToken(tokens.issueToken(user())));
+	}
+
+	@Test
+	void rejectsTamperedTokens() {
+		TokenService tokens = tokenService("current-secret", "2024-06", "", 3600);
+		String[] parts = tokens.issueToken(user()).split("\\.");
+
+		String promoted = encode(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+				.replace("\"USER\"", "\"ADMIN\""));
+		assertNull(tokens.validateToken(parts[0] + "." + promoted + "." + parts[2]));
+
+		// The last character of a 32-byte signature only carries padding bits, so flip the first
+		String signature = (parts[2].charAt(0) == 'A' ? 'B' : 'A') + parts[2].substring(1);
+		assertNull(tokens.validateToken(parts[0] + "." + parts[1] + "." + signature));
+		assertNull(tokens.validateToken(parts[0] + "." + parts[1]));
+	}
+
+	@Test
+	void acceptsRotatedKeysAndRejectsUnknownOnes() {
+		TokenService old = tokenService("old-secret", "2024-01", "", 3600);
+		String oldToken = old.issueToken(user());
+		TokenService rotated = tokenService("current-secret", "2024-06", "2024-01:old-secret", 3600);
+		assertNotNull(rotated.validateToken(oldToken));
+
+		TokenService unrelated = tokenService("other-secret", "2023-01", "", 3600);
+		assertNull(rotated.validateToken(unrelated.issueToken(user())));
+		// Same key id, different secret
+		TokenService impostor = tokenService("guessed-secret", "2024-06", "", 3600);
+		assertNull(rotated.validateToken(impostor.issueToken(user())));
+	}
+
+	@Test
+	void headerCarriesTheConfiguredKeyId() throws Exception {
+		TokenService tokens = tokenService("current-secret", "2024-06", "", 3600);
+		String header = new String(Base64.getUrlDecoder().decode(tokens.issueToken(user()).split("\\.")[0]),
+				StandardCharsets.UTF_8);
+		assertEquals("2024-06", objectMapper.readTree(header).get("kid").asText());
+	}
+
+	@Test
+	void rejectsMalformedRotationConfig() {
+		assertThrows(IllegalStateException.class, () -> tokenService("current-secret", "1", "old-secret", 3600));
+		assertThrows(IllegalStateException.class, () -> tokenService("current-secret", "1", "1:old-secret", 3600));
+		assertTrue(tokenService("current-secret", "1", " , ", 3600).getExpirationSeconds() > 0);
+	}
+
+	private TokenService tokenService(String secret, String keyId, String previousSecrets, long expirationSeconds) {
+		TokenService tokens = new TokenService();
+		ReflectionTestUtils.setField(tokens, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(tokens, "secret", secret);
+		ReflectionTestUtils.setField(tokens, "keyId", keyId);
+		ReflectionTestUtils.setField(tokens, "previousSecrets", previousSecrets);
+		ReflectionTestUtils.setField(tokens, "expirationSeconds", expirationSeconds);
+		tokens.initializeKeys();
+		return tokens;
+	}
+
+	private static String encode(String json) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static User user() {
+		User user = new User("alice", null);
+		user.setId("user-1");
+		user.setRole("USER");
+		return user;
+	}
+}
@@ -0,0 +1,113 @@
+package com.example.ExamPilot.service;
+
+import com.example.ExamPilot.model.User;
+import com.example.ExamPilot.repository.UserRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserServiceTests {
+
+	@Container
+	static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+	private static MongoClient client;
+	private static MongoTemplate mongoTemplate;
+
+	private UserRepository userRepository;
+	private UserService userService;
+
+	@BeforeAll
+	static void connect() {
+		client = MongoClients.create(mongo.getReplicaSetUrl("users"));
+		mongoTemplate = new MongoTemplate(client, "users");
+	}
+
+	@AfterAll
+	static void disconnect() {
+		if (client != null) {
+			client.close();
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(User.class);
+		userRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(UserRepository.class);
+	}
+
+	@Test
+	void startupHashesEveryPlaintextPassword() {
+		// More than one migration page
+		for (int i = 0; i < 250; i++) {
+			userRepository.save(new User("user-" + i, "password-" + i));
+		}
+		userRepository.save(new User("no-password", null));
+
+		start();
+
+		assertTrue(userRepository.findPlaintextPasswords(PageRequest.of(0, 10)).isEmpty());
+		assertTrue(userRepository.findByUsername("user-249").orElseThrow().getPassword().startsWith("$2"));
+		assertNull(userRepository.findByUsername("no-password").orElseThrow().getPassword());
+		assertTrue(userService.authenticateUser("user-7", "password-7"));
+		assertTrue(userService.authenticateUser("admin", "admin-password"));
+	}
+
+	@Test
+	void repeatedLoginsAreAnsweredFromTheCache() {
+		start();
+		userService.createUser("alice", "first");
+
+		assertTrue(userService.authenticateUser("alice", "first"));
+		long hits = userService.getCredentialCache().getHits();
+		assertTrue(userService.authenticateUser("alice", "first"));
+		assertEquals(hits + 1, userService.getCredentialCache().getHits());
+		assertFalse(userService.authenticateUser("alice", "wrong"));
+	}
+
+	@Test
+	void passwordChangeInvalidatesTheCachedLogin() {
+		start();
+		userService.createUser("alice", "first");
+		assertTrue(userService.authenticateUser("alice", "first"));
+
+		userService.updatePassword("alice", "second");
+
+		assertFalse(userService.authenticateUser("alice", "first"));
+		assertTrue(userService.authenticateUser("alice", "second"));
+	}
+
+	private void start() {
+		userService = new UserService();
+		ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+		ReflectionTestUtils.setField(userService, "passwordEncoder", new BCryptPasswordEncoder(4));
+		MongoBulkhead bulkhead = new MongoBulkhead();
+		bulkhead.init();
+		ReflectionTestUtils.setField(userService, "mongoBulkhead", bulkhead);
+		ReflectionTestUtils.setField(userService, "databaseErrors", new DatabaseErrors(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(userService, "adminUsername", "admin");
+		ReflectionTestUtils.setField(userService, "adminPassword", "admin-password");
+		ReflectionTestUtils.setField(userService, "cacheMaxEntries", 100);
+		ReflectionTestUtils.setField(userService, "cacheTtlSeconds", 300L);
+		ReflectionTestUtils.setField(userService, "seedAdminAtStartup", true);
+		userService.init();
+	}
+}